@@ -11,10 +11,13 @@ import javafx.scene.paint.Color;
 import model.*;
 import service.*;
 
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class MainController {
+    // 🆕 카카오톡 가져오기에서 분석 맥락으로 쓰는 최근 메시지 수
+    private static final int KAKAO_CONTEXT_COUNT = 20;
 
     @FXML
     private TextArea inputTextArea;
@@ -46,12 +49,15 @@ public class MainController {
     private GeminiService geminiService;
     private DataManager dataManager;
     private ContactManager contactManager; // 🆕
+    private ImportCheckpoints importCheckpoints; // 🆕 전체 대화 분석에서 이어서 가져오기 위치
+    private volatile BulkAnalyzer bulkAnalyzer; // 🆕 진행 중인 일괄 분석 (취소용)
 
     @FXML
     public void initialize() {
         geminiService = new GeminiService();
         dataManager = new DataManager();
         contactManager = new ContactManager(); // 🆕
+        importCheckpoints = new ImportCheckpoints();
 
         if (loadingIndicator != null) {
             loadingIndicator.setVisible(false);
@@ -73,6 +79,12 @@ public class MainController {
         loadHistory();
         loadStats();
 
+        // 🆕 이전 기록은 백그라운드에서 로드되므로, 끝나면 상대 목록과 통계 갱신
+        dataManager.addLoadListener(() -> Platform.runLater(() -> {
+            updateContactList();
+            loadStats();
+        }));
+
         System.out.println("✅ UI 컨트롤러 초기화 완료");
     }
 
@@ -212,6 +224,16 @@ public class MainController {
         final String finalContactName = contactName;
         final MBTI mbti = contact.getMbti();
 
+        // 🆕 같은 상대에게 같은 문장을 같은 분 안에 다시 분석하면 (중복 클릭 등) API 호출 없이 건너뜀
+        final long sourceFingerprint = DedupIndex.fingerprint(
+                LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES), contactName, text);
+        if (dataManager.isDuplicate(sourceFingerprint)) {
+            showAlert("이미 분석한 메시지",
+                    "방금 같은 내용을 분석했습니다.\n기록에서 결과를 확인해주세요.",
+                    Alert.AlertType.INFORMATION);
+            return;
+        }
+
         setUIEnabled(false);
         if (loadingIndicator != null) {
             loadingIndicator.setVisible(true);
@@ -241,7 +263,7 @@ public class MainController {
 
                 Platform.runLater(() -> {
                     displayResult(message);
-                    dataManager.saveMessage(message);
+                    dataManager.saveMessage(message, sourceFingerprint);
                     updateContactList();
                     loadHistory();
                     loadStats();
@@ -422,25 +444,24 @@ public class MainController {
         VBox overallStats = createOverallStatsBox();
         statsBox.getChildren().add(overallStats);
 
-        List<Message> allMessages = dataManager.getAllMessages();
-        Map<String, List<Message>> messagesByContact = allMessages.stream()
-                .collect(Collectors.groupingBy(Message::getContactName));
+        // 🔧 전체 메시지를 다시 묶지 않고 누적 통계 사용
+        Map<String, EmotionAggregates.Counts> statsByContact = dataManager.getAllContactStats();
 
-        List<String> sortedContacts = new ArrayList<>(messagesByContact.keySet());
+        List<String> sortedContacts = new ArrayList<>(statsByContact.keySet());
         sortedContacts.remove("알 수 없음");
         Collections.sort(sortedContacts);
-        if (messagesByContact.containsKey("알 수 없음")) {
+        if (statsByContact.containsKey("알 수 없음")) {
             sortedContacts.add("알 수 없음");
         }
 
         for (String contactName : sortedContacts) {
-            List<Message> contactMessages = messagesByContact.get(contactName);
-            VBox contactStatsBox = createContactStatsBox(contactName, contactMessages);
+            EmotionAggregates.Counts contactStats = statsByContact.get(contactName);
+            VBox contactStatsBox = createContactStatsBox(contactName, contactStats);
             statsBox.getChildren().add(contactStatsBox);
         }
     }
 
-    private VBox createContactStatsBox(String contactName, List<Message> messages) {
+    private VBox createContactStatsBox(String contactName, EmotionAggregates.Counts stats) {
         VBox box = new VBox(15);
         box.setPadding(new Insets(20));
         box.setStyle(
@@ -463,19 +484,9 @@ public class MainController {
                         "-fx-font-weight: bold; " +
                         "-fx-text-fill: #667eea;");
 
-        int count = messages.size();
-        double avgIntensity = messages.stream()
-                .mapToDouble(Message::getIntensity)
-                .average()
-                .orElse(0.0);
-
-        Map<Emotion, Long> emotionCount = messages.stream()
-                .collect(Collectors.groupingBy(Message::getEmotion, Collectors.counting()));
-
-        Emotion mostFrequent = emotionCount.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse(Emotion.NEUTRAL);
+        int count = stats.getTotal();
+        double avgIntensity = stats.getAverageIntensity();
+        Emotion mostFrequent = stats.getMostFrequent();
 
         Label countLabel = new Label("📝 대화 횟수: " + count + "회");
         countLabel.setStyle("-fx-font-size: 13px;");
@@ -486,7 +497,7 @@ public class MainController {
         Label mostLabel = new Label("⭐ 가장 많은 감정: " + mostFrequent.getEmoji() + " " + mostFrequent.getKorean());
         mostLabel.setStyle("-fx-font-size: 13px;");
 
-        HBox emotionBars = createMiniEmotionBars(emotionCount, count);
+        HBox emotionBars = createMiniEmotionBars(stats, count);
 
         VBox profileSection = createProfileSection(contact, contactName, count);
 
@@ -496,12 +507,12 @@ public class MainController {
         return box;
     }
 
-    private HBox createMiniEmotionBars(Map<Emotion, Long> emotionCount, int total) {
+    private HBox createMiniEmotionBars(EmotionAggregates.Counts stats, int total) {
         HBox box = new HBox(5);
         box.setAlignment(Pos.CENTER_LEFT);
 
         for (Emotion emotion : Emotion.values()) {
-            long count = emotionCount.getOrDefault(emotion, 0L);
+            long count = stats.getCount(emotion);
             if (count > 0) {
                 double percentage = (count / (double) total) * 100;
 
@@ -692,6 +703,13 @@ public class MainController {
 
         box.getChildren().addAll(titleLabel, totalLabel, todayLabel, avgLabel, mostLabel);
 
+        // 🆕 이전 기록을 아직 불러오는 중이면 최근 메시지만 반영된 값 (다 불러오면 다시 그림)
+        if (!dataManager.isStatsComplete()) {
+            Label loadingLabel = new Label("⏳ 이전 기록을 불러오는 중이라 최근 메시지 기준입니다");
+            loadingLabel.setStyle("-fx-font-size: 12px; -fx-text-fill: white;");
+            box.getChildren().add(loadingLabel);
+        }
+
         return box;
     }
 
@@ -707,6 +725,10 @@ public class MainController {
         alert.showAndWait().ifPresent(response -> {
             if (response == ButtonType.OK) {
                 dataManager.clearAllData();
+                // 🆕 저장된 분석 결과 캐시도 비움 (같은 문장을 다시 분석하면 새로 호출)
+                if (geminiService.getAnalysisCache() != null) {
+                    geminiService.getAnalysisCache().invalidateAll();
+                }
                 updateContactList();
                 loadHistory();
                 loadStats();
@@ -750,6 +772,17 @@ public class MainController {
         showAlert(title, content, Alert.AlertType.INFORMATION);
     }
 
+    // 🆕 작업 스레드에서 중복으로 판정되어 API 호출 없이 끝낼 때
+    private void showDuplicateAlert(String content) {
+        Platform.runLater(() -> {
+            showAlert("이미 분석한 메시지", content, Alert.AlertType.INFORMATION);
+            setUIEnabled(true);
+            if (loadingIndicator != null) {
+                loadingIndicator.setVisible(false);
+            }
+        });
+    }
+
     @FXML
     private void handleImportKakaoCSV() {
         javafx.stage.FileChooser fileChooser = new javafx.stage.FileChooser();
@@ -772,7 +805,10 @@ public class MainController {
             try {
                 System.out.println("📁 CSV 파일 파싱 중: " + file.getName());
 
-                KakaoParser.ParseResult result = KakaoParser.parseCSV(file);
+                // 🆕 마지막 메시지 분석에는 최근 대화만 필요하므로 파일 끝에서부터 맥락 분량만 읽음
+                KakaoParser.ParseResult result = KakaoParser.parseCSVTail(file, KAKAO_CONTEXT_COUNT);
+                KakaoParser.ConversationTail tail = new KakaoParser.ConversationTail(KAKAO_CONTEXT_COUNT);
+                result.getMessages().forEach(tail);
 
                 if (result.getTotalMessageCount() == 0) {
                     Platform.runLater(() -> {
@@ -789,45 +825,47 @@ public class MainController {
 
                 // 🆕 사용자 선택 다이얼로그
                 Platform.runLater(() -> {
-                    Alert choiceAlert = new Alert(Alert.AlertType.CONFIRMATION);
-                    choiceAlert.setTitle("대화 참여자 확인");
-                    choiceAlert.setHeaderText("📊 CSV 파싱 완료\n총 메시지: " + result.getTotalMessageCount() + "개");
-
-                    String content = String.format(
-                            "대화 참여자:\n" +
-                                    "  • %s: %d개 메시지\n" +
-                                    "  • %s: %d개 메시지\n\n" +
-                                    "이 중에서 '나'는 누구인가요?\n" +
-                                    "(상대방의 메시지를 분석합니다)",
-                            result.getMainUser(),
-                            result.getUserMessageCount().get(result.getMainUser()),
-                            result.getOtherUser(),
-                            result.getUserMessageCount().get(result.getOtherUser()));
-
-                    choiceAlert.setContentText(content);
-
-                    ButtonType user1Button = new ButtonType(result.getMainUser() + " (나)");
-                    ButtonType user2Button = new ButtonType(result.getOtherUser() + " (나)");
-                    ButtonType cancelButton = new ButtonType("취소", ButtonBar.ButtonData.CANCEL_CLOSE);
-
-                    choiceAlert.getButtonTypes().setAll(user1Button, user2Button, cancelButton);
-
-                    Optional<ButtonType> choice = choiceAlert.showAndWait();
-
-                    if (choice.isPresent() && choice.get() != cancelButton) {
-                        String myName;
-                        String otherName;
+                    String myName = result.isGroupChat() ? chooseMeInGroup(result) : chooseMeInPair(result);
+                    if (myName == null) {
+                        setUIEnabled(true);
+                        if (loadingIndicator != null) {
+                            loadingIndicator.setVisible(false);
+                        }
+                        return;
+                    }
 
-                        if (choice.get() == user1Button) {
-                            myName = result.getMainUser();
-                            otherName = result.getOtherUser();
-                        } else {
-                            myName = result.getOtherUser();
-                            otherName = result.getMainUser();
+                    // 🆕 마지막 메시지 분석 대상: 1:1이면 상대방, 단체방이면 마지막으로 말한 다른 사람
+                    String otherName = result.getMainUser().equals(myName) ? result.getOtherUser() : result.getMainUser();
+                    if (result.isGroupChat()) {
+                        List<KakaoParser.KakaoMessage> recent = tail.getMessages();
+                        for (int i = recent.size() - 1; i >= 0; i--) {
+                            if (!recent.get(i).getUser().equals(myName)) {
+                                otherName = recent.get(i).getUser();
+                                break;
+                            }
                         }
+                    }
+                    System.out.println("✅ 사용자 선택: 나=" + myName + ", 상대방=" + otherName);
+
+                    // 🆕 분석 범위 선택
+                    Alert scopeAlert = new Alert(Alert.AlertType.CONFIRMATION);
+                    scopeAlert.setTitle("분석 범위");
+                    scopeAlert.setHeaderText("어디까지 분석할까요?");
+                    scopeAlert.setContentText(
+                            "• 마지막 메시지만: " + otherName + "님의 마지막 메시지 하나 (추천 답변 포함)\n" +
+                            (result.isGroupChat()
+                                    ? "• 전체 대화: 나를 뺀 참여자 모두의 메시지 (참여자마다 따로 저장, 이미 분석한 메시지는 건너뜀)"
+                                    : "• 전체 대화: " + otherName + "님이 보낸 모든 메시지 (이미 분석한 메시지는 건너뜀)"));
+                    ButtonType lastButton = new ButtonType("마지막 메시지만");
+                    ButtonType bulkButton = new ButtonType("전체 대화");
+                    ButtonType cancelButton = new ButtonType("취소", ButtonBar.ButtonData.CANCEL_CLOSE);
+                    scopeAlert.getButtonTypes().setAll(lastButton, bulkButton, cancelButton);
 
-                        System.out.println("✅ 사용자 선택: 나=" + myName + ", 상대방=" + otherName);
-                        processKakaoMessages(result, otherName, myName);
+                    Optional<ButtonType> scope = scopeAlert.showAndWait();
+                    if (scope.isPresent() && scope.get() == lastButton) {
+                        processKakaoMessages(result, tail, otherName, myName);
+                    } else if (scope.isPresent() && scope.get() == bulkButton) {
+                        processKakaoBulk(file, result.isGroupChat() ? null : otherName, myName);
                     } else {
                         setUIEnabled(true);
                         if (loadingIndicator != null) {
@@ -896,8 +934,15 @@ public class MainController {
             try {
                 System.out.println("📷 이미지 OCR 분석 시작: " + file.getName());
 
-                // OCR로 텍스트 추출
+                // 🆕 같은 스크린샷을 다시 고르면 OCR/분석 API를 호출하지 않음
                 String base64Image = geminiService.encodeImageToBase64(file);
+                long imageFingerprint = DedupIndex.fingerprint(null, finalContactName, base64Image);
+                if (dataManager.isDuplicate(imageFingerprint)) {
+                    showDuplicateAlert("이미 분석한 스크린샷입니다.");
+                    return;
+                }
+
+                // OCR로 텍스트 추출
                 String extractedText = geminiService.extractTextFromImage(base64Image);
                 
                 System.out.println("📝 추출된 전체 대화:\n" + extractedText);
@@ -926,7 +971,7 @@ public class MainController {
 
                 Platform.runLater(() -> {
                     displayResult(message);
-                    dataManager.saveMessage(message);
+                    dataManager.saveMessage(message, imageFingerprint);
                     updateContactList();
                     loadHistory();
                     loadStats();
@@ -985,13 +1030,356 @@ public class MainController {
         return lastOtherMessage;
     }
 
-    private void processKakaoMessages(KakaoParser.ParseResult result, String contactName, String myName) {
+    // 1:1 대화: 두 사람 중 '나' 선택 (취소하면 null)
+    private String chooseMeInPair(KakaoParser.ParseResult result) {
+        Alert choiceAlert = new Alert(Alert.AlertType.CONFIRMATION);
+        choiceAlert.setTitle("대화 참여자 확인");
+        choiceAlert.setHeaderText("📊 CSV 파싱 완료\n최근 메시지 " + result.getTotalMessageCount() + "개 기준");
+        choiceAlert.setContentText("대화 참여자:\n" + describeParticipants(result) + "\n" +
+                "이 중에서 '나'는 누구인가요?\n" +
+                "(상대방의 메시지를 분석합니다)");
+
+        ButtonType user1Button = new ButtonType(result.getMainUser() + " (나)");
+        ButtonType user2Button = new ButtonType(result.getOtherUser() + " (나)");
+        ButtonType cancelButton = new ButtonType("취소", ButtonBar.ButtonData.CANCEL_CLOSE);
+        choiceAlert.getButtonTypes().setAll(user1Button, user2Button, cancelButton);
+
+        Optional<ButtonType> choice = choiceAlert.showAndWait();
+        if (!choice.isPresent() || choice.get() == cancelButton) {
+            return null;
+        }
+        return choice.get() == user1Button ? result.getMainUser() : result.getOtherUser();
+    }
+
+    // 🆕 단체방: 참여자 목록에서 '나' 선택 (취소하면 null)
+    private String chooseMeInGroup(KakaoParser.ParseResult result) {
+        List<String> names = new ArrayList<>();
+        for (ParticipantStats.Participant participant : result.getParticipants()) {
+            names.add(participant.getName());
+        }
+
+        ChoiceDialog<String> dialog = new ChoiceDialog<>(result.getMainUser(), names);
+        dialog.setTitle("단체 대화 참여자 확인");
+        dialog.setHeaderText("📊 CSV 파싱 완료 (참여자 " + names.size() + "명)\n최근 메시지 "
+                + result.getTotalMessageCount() + "개 기준");
+        dialog.setContentText(describeParticipants(result) + "\n'나'는 누구인가요?");
+        return dialog.showAndWait().orElse(null);
+    }
+
+    // 🆕 참여자별 한 줄 요약 (메시지 수, 평균 길이, 주로 말하는 시간)
+    private String describeParticipants(KakaoParser.ParseResult result) {
+        StringBuilder sb = new StringBuilder();
+        for (ParticipantStats.Participant participant : result.getParticipants()) {
+            sb.append("  • ").append(participant.getName()).append(": ")
+                    .append(participant.getMessageCount()).append("개 메시지");
+            if (participant.getMessageCount() > 0) {
+                sb.append(String.format(" (평균 %.0f자, 주로 %d시)",
+                        participant.getAverageLength(), participant.getPeakHour()));
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 🆕 전체 대화 일괄 분석
+     * 이전에 가져온 대화를 다시 내보낸 파일이면 새로 붙은 부분(과 맥락)만 읽고,
+     * 이미 분석한 메시지는 BulkAnalyzer가 API 호출 없이 건너뜀
+     * @param contactName null이면 단체방: 나를 뺀 참여자 모두를 각각의 상대로 (파일은 한 번만 읽음)
+     */
+    private void processKakaoBulk(java.io.File file, String contactName, String myName) {
+        BulkAnalyzer analyzer = new BulkAnalyzer(geminiService, dataManager);
+        bulkAnalyzer = analyzer;
+        Alert progressAlert = showBulkProgress(analyzer, "전체 대화 분석",
+                "📦 " + (contactName != null ? contactName + "님의" : "참여자들의") + " 메시지를 분석하는 중...");
+
+        new Thread(() -> {
+            try {
+                List<KakaoParser.KakaoMessage> messages = new ArrayList<>();
+                KakaoParser.ParseResult result = KakaoParser.parseCSVIncremental(file, importCheckpoints, messages::add);
+
+                List<String> contactNames = new ArrayList<>();
+                if (contactName != null) {
+                    contactNames.add(contactName);
+                } else {
+                    contactNames.addAll(otherParticipants(result, myName));
+                }
+
+                BulkAnalyzer.Summary summary = analyzeContacts(analyzer, messages, contactNames, myName, "", progressAlert);
+
+                // 끝까지 분석했을 때만 다음 가져오기 위치 저장 (중단/실패한 부분은 다음에 다시)
+                if (!summary.isCancelled() && summary.getFailed() == 0) {
+                    importCheckpoints.save(result.getCheckpoint());
+                }
+
+                final String report = formatBulkReport(summary,
+                        contactNames.size() > 1 ? " (참여자 " + contactNames.size() + "명)" : "");
+                Platform.runLater(() -> {
+                    bulkAnalyzer = null;
+                    progressAlert.close();
+                    finishBulk();
+                    showAlert(summary.isCancelled() ? "분석 중지" : "전체 대화 분석 완료!", report, Alert.AlertType.INFORMATION);
+                });
+
+            } catch (Exception e) {
+                Platform.runLater(() -> {
+                    bulkAnalyzer = null;
+                    progressAlert.close();
+                    finishBulk();
+                    showAlert("오류",
+                            "전체 대화 분석 중 오류:\n\n" + e.getMessage(),
+                            Alert.AlertType.ERROR);
+                    e.printStackTrace();
+                });
+            }
+        }, "kakao-bulk").start();
+    }
+
+    // 🆕 카카오톡 내보내기 ZIP / 폴더 가져오기 (대화 여러 개를 한 번에 전체 분석)
+    @FXML
+    private void handleImportKakaoArchive() {
+        Alert kindAlert = new Alert(Alert.AlertType.CONFIRMATION);
+        kindAlert.setTitle("카카오톡 내보내기 가져오기");
+        kindAlert.setHeaderText("무엇을 가져올까요?");
+        kindAlert.setContentText("• ZIP/CSV 파일: 내보내기 ZIP (압축을 풀지 않아도 됨) 또는 CSV, 여러 개 선택 가능\n" +
+                "• 폴더: 안에 있는 ZIP과 CSV 모두 (하위 폴더 포함)");
+        ButtonType filesButton = new ButtonType("ZIP/CSV 파일");
+        ButtonType folderButton = new ButtonType("폴더");
+        ButtonType cancelButton = new ButtonType("취소", ButtonBar.ButtonData.CANCEL_CLOSE);
+        kindAlert.getButtonTypes().setAll(filesButton, folderButton, cancelButton);
+
+        Optional<ButtonType> kind = kindAlert.showAndWait();
+        List<java.io.File> inputs = new ArrayList<>();
+        if (kind.isPresent() && kind.get() == filesButton) {
+            javafx.stage.FileChooser fileChooser = new javafx.stage.FileChooser();
+            fileChooser.setTitle("카카오톡 내보내기 파일 선택");
+            fileChooser.getExtensionFilters().add(
+                    new javafx.stage.FileChooser.ExtensionFilter("카카오톡 내보내기 (ZIP, CSV)", "*.zip", "*.csv"));
+            List<java.io.File> files = fileChooser.showOpenMultipleDialog(analyzeButton.getScene().getWindow());
+            if (files != null) {
+                inputs.addAll(files);
+            }
+        } else if (kind.isPresent() && kind.get() == folderButton) {
+            javafx.stage.DirectoryChooser directoryChooser = new javafx.stage.DirectoryChooser();
+            directoryChooser.setTitle("카카오톡 내보내기 폴더 선택");
+            java.io.File directory = directoryChooser.showDialog(analyzeButton.getScene().getWindow());
+            if (directory != null) {
+                inputs.add(directory);
+            }
+        }
+
+        if (inputs.isEmpty()) {
+            return;
+        }
+
+        setUIEnabled(false);
+        if (loadingIndicator != null) {
+            loadingIndicator.setVisible(true);
+            loadingIndicator.setProgress(0);
+        }
+
+        new Thread(() -> {
+            try {
+                List<KakaoArchiveImporter.Conversation> conversations = KakaoArchiveImporter.parseAll(inputs,
+                        (completed, total) -> Platform.runLater(() -> {
+                            if (loadingIndicator != null) {
+                                loadingIndicator.setProgress((double) completed / total);
+                            }
+                        }));
+
+                Platform.runLater(() -> {
+                    if (conversations.isEmpty()) {
+                        showAlert("파싱 실패",
+                                "선택한 파일에서 카카오톡 대화를 찾을 수 없습니다.",
+                                Alert.AlertType.WARNING);
+                        finishBulk();
+                        return;
+                    }
+
+                    String myName = chooseMeInArchive(conversations);
+                    if (myName == null) {
+                        finishBulk();
+                        return;
+                    }
+                    System.out.println("✅ 사용자 선택: 나=" + myName + " (대화 " + conversations.size() + "개)");
+                    processArchiveBulk(conversations, myName);
+                });
+
+            } catch (Exception e) {
+                Platform.runLater(() -> {
+                    showAlert("오류",
+                            "카카오톡 내보내기 파싱 중 오류:\n\n" + e.getMessage(),
+                            Alert.AlertType.ERROR);
+                    e.printStackTrace();
+                    finishBulk();
+                });
+            }
+        }, "kakao-archive").start();
+    }
+
+    // 🆕 여러 대화에서 '나' 선택 (모든 대화에 나오는 사람이 기본값, 취소하면 null)
+    private String chooseMeInArchive(List<KakaoArchiveImporter.Conversation> conversations) {
+        Set<String> names = new TreeSet<>();
+        StringBuilder summary = new StringBuilder();
+        for (KakaoArchiveImporter.Conversation conversation : conversations) {
+            KakaoParser.ParseResult result = conversation.getResult();
+            names.addAll(result.getParticipantStats().getNames());
+            if (summary.length() < 1000) {
+                String source = conversation.getSource();
+                summary.append("  • ").append(source.substring(Math.max(source.lastIndexOf('/'), source.lastIndexOf('\\')) + 1))
+                        .append(": ").append(result.getParticipantStats().size()).append("명, ")
+                        .append(result.getTotalMessageCount()).append("개 메시지\n");
+            }
+        }
+
+        ChoiceDialog<String> dialog = new ChoiceDialog<>(KakaoArchiveImporter.guessMe(conversations), new ArrayList<>(names));
+        dialog.setTitle("대화 참여자 확인");
+        dialog.setHeaderText("📊 대화 " + conversations.size() + "개 파싱 완료\n" +
+                "나를 뺀 참여자들의 메시지를 모두 분석합니다 (이미 분석한 메시지는 건너뜀)");
+        dialog.setContentText(summary + "\n'나'는 누구인가요?");
+        return dialog.showAndWait().orElse(null);
+    }
+
+    // 🆕 가져온 대화마다 나를 뺀 참여자 전원 일괄 분석 (다시 가져와도 중복 인덱스가 이미 분석한 메시지를 건너뜀)
+    private void processArchiveBulk(List<KakaoArchiveImporter.Conversation> conversations, String myName) {
+        BulkAnalyzer analyzer = new BulkAnalyzer(geminiService, dataManager);
+        bulkAnalyzer = analyzer;
+        Alert progressAlert = showBulkProgress(analyzer, "카카오톡 내보내기 분석",
+                "📦 대화 " + conversations.size() + "개의 메시지를 분석하는 중...");
+
+        new Thread(() -> {
+            try {
+                BulkAnalyzer.Summary summary = BulkAnalyzer.Summary.empty();
+                for (int i = 0; i < conversations.size() && !analyzer.isCancelled(); i++) {
+                    KakaoParser.ParseResult result = conversations.get(i).getResult();
+                    String step = conversations.size() > 1 ? String.format("대화 %d/%d ", i + 1, conversations.size()) : "";
+                    summary = summary.plus(analyzeContacts(analyzer, result.getMessages(),
+                            otherParticipants(result, myName), myName, step, progressAlert));
+                }
+
+                final String report = formatBulkReport(summary, " (대화 " + conversations.size() + "개)");
+                final boolean cancelled = summary.isCancelled();
+                Platform.runLater(() -> {
+                    bulkAnalyzer = null;
+                    progressAlert.close();
+                    finishBulk();
+                    showAlert(cancelled ? "분석 중지" : "카카오톡 내보내기 분석 완료!", report, Alert.AlertType.INFORMATION);
+                });
+
+            } catch (Exception e) {
+                Platform.runLater(() -> {
+                    bulkAnalyzer = null;
+                    progressAlert.close();
+                    finishBulk();
+                    showAlert("오류",
+                            "카카오톡 내보내기 분석 중 오류:\n\n" + e.getMessage(),
+                            Alert.AlertType.ERROR);
+                    e.printStackTrace();
+                });
+            }
+        }, "kakao-bulk").start();
+    }
+
+    // 진행 상황 창 (닫거나 "중지"를 누르면 취소)
+    private Alert showBulkProgress(BulkAnalyzer analyzer, String title, String header) {
+        Alert progressAlert = new Alert(Alert.AlertType.INFORMATION);
+        progressAlert.setTitle(title);
+        progressAlert.setHeaderText(header);
+        progressAlert.setContentText("대화를 읽는 중...");
+        progressAlert.getButtonTypes().setAll(new ButtonType("중지", ButtonBar.ButtonData.CANCEL_CLOSE));
+        progressAlert.setOnHidden(event -> {
+            if (bulkAnalyzer == analyzer) {
+                analyzer.cancel();
+            }
+        });
+        progressAlert.show();
+        if (loadingIndicator != null) {
+            loadingIndicator.setVisible(true);
+            loadingIndicator.setProgress(0);
+        }
+        return progressAlert;
+    }
+
+    private List<String> otherParticipants(KakaoParser.ParseResult result, String myName) {
+        List<String> names = new ArrayList<>();
+        for (ParticipantStats.Participant participant : result.getParticipants()) {
+            if (!participant.getName().equals(myName)) {
+                names.add(participant.getName());
+            }
+        }
+        return names;
+    }
+
+    // 상대마다 차례로 일괄 분석 (작업 스레드에서 호출, 취소되면 남은 상대는 건너뜀)
+    private BulkAnalyzer.Summary analyzeContacts(BulkAnalyzer analyzer, List<KakaoParser.KakaoMessage> messages,
+                                                 List<String> contactNames, String myName, String stepPrefix,
+                                                 Alert progressAlert) throws InterruptedException {
+        BulkAnalyzer.Summary total = BulkAnalyzer.Summary.empty();
+        for (int c = 0; c < contactNames.size() && !analyzer.isCancelled(); c++) {
+            String name = contactNames.get(c);
+            String step = stepPrefix + (contactNames.size() > 1
+                    ? String.format("[%d/%d] %s: ", c + 1, contactNames.size(), name)
+                    : (stepPrefix.isEmpty() ? "" : name + ": "));
+
+            Contact contact = contactManager.getContact(name);
+            if (contact == null) {
+                contact = new Contact(name);
+                contactManager.saveContact(contact);
+            }
+
+            total = total.plus(analyzer.analyze(messages, myName, name, contact.getMbti(),
+                    (completed, count) -> Platform.runLater(() -> {
+                        progressAlert.setContentText(String.format("%s진행: %d / %d", step, completed, count)
+                                + describeRateLimit());
+                        if (loadingIndicator != null) {
+                            loadingIndicator.setProgress((double) completed / count);
+                        }
+                    })));
+        }
+        return total;
+    }
+
+    // 🆕 지금의 API 속도 조절 상태 (한도 초과로 기다리는 중이면 남은 시간도)
+    private String describeRateLimit() {
+        AdaptiveRateLimiter limiter = geminiService.getRateLimiter();
+        String text = String.format("\n⚙️ 동시 요청 %d/%d개 · 분당 %.0f회", limiter.getInFlight(),
+                limiter.getConcurrencyLimit(), limiter.getRequestsPerMinute());
+        long pausedMillis = limiter.getPausedMillis();
+        if (pausedMillis > 0) {
+            text += String.format("\n⏸️ API 한도 초과로 %.0f초 대기 중", Math.ceil(pausedMillis / 1000.0));
+        }
+        return text;
+    }
+
+    private String formatBulkReport(BulkAnalyzer.Summary summary, String scope) {
+        return String.format("📦 분석 대상: %d건%s\n" +
+                        "✅ 분석: %d건\n" +
+                        "⏭️ 이미 분석함: %d건\n" +
+                        "⚠️ 실패: %d건%s",
+                summary.getTotal(), scope,
+                summary.getAnalyzed(), summary.getSkipped(), summary.getFailed(),
+                summary.isCancelled() ? "\n\n중지하기 전까지의 결과는 저장되었습니다." : "");
+    }
+
+    private void finishBulk() {
+        updateContactList();
+        loadHistory();
+        loadStats();
+        setUIEnabled(true);
+        if (loadingIndicator != null) {
+            loadingIndicator.setProgress(ProgressIndicator.INDETERMINATE_PROGRESS);
+            loadingIndicator.setVisible(false);
+        }
+    }
+
+    private void processKakaoMessages(KakaoParser.ParseResult result, KakaoParser.ConversationTail tail,
+                                      String contactName, String myName) {
         new Thread(() -> {
             try {
-                // 전체 메시지 가져오기
-                List<KakaoParser.KakaoMessage> allMessages = result.getMessages();
+                // 🆕 파일 끝에서 읽은 최근 메시지만
+                List<KakaoParser.KakaoMessage> recentMessages = tail.getMessages();
 
-                System.out.println("📨 전체 메시지: " + allMessages.size() + "개");
+                System.out.println("📨 읽은 최근 메시지: " + result.getTotalMessageCount() + "개");
 
                 // 연락처 확인/생성
                 Contact contact = contactManager.getContact(contactName);
@@ -1002,19 +1390,12 @@ public class MainController {
                 final MBTI mbti = contact.getMbti();
 
                 // 🆕 대화 맥락 생성 (최근 20개 또는 전체)
-                int contextCount = Math.min(20, allMessages.size());
+                int contextCount = Math.min(KAKAO_CONTEXT_COUNT, recentMessages.size());
                 String conversationContext = KakaoParser.toConversationContext(
-                        allMessages, contextCount, myName, contactName);
-
-                // 🆕 마지막 상대방 메시지 찾기
-                KakaoParser.KakaoMessage lastMessage = null;
-                for (int i = allMessages.size() - 1; i >= 0; i--) {
-                    KakaoParser.KakaoMessage msg = allMessages.get(i);
-                    if (msg.getUser().equals(contactName)) {
-                        lastMessage = msg;
-                        break;
-                    }
-                }
+                        recentMessages, contextCount, myName, contactName);
+
+                // 🆕 마지막 상대방 메시지 (파싱하면서 참여자별로 기록해 둠)
+                KakaoParser.KakaoMessage lastMessage = tail.getLastMessageFrom(contactName);
 
                 if (lastMessage == null) {
                     Platform.runLater(() -> {
@@ -1029,6 +1410,13 @@ public class MainController {
                     return;
                 }
 
+                // 🆕 이미 가져온 메시지면 분석(API 호출) 없이 종료
+                if (dataManager.isDuplicate(DedupIndex.fingerprint(
+                        lastMessage.getDateTime(), contactName, lastMessage.getMessage()))) {
+                    showDuplicateAlert("마지막 상대방 메시지는 이미 가져와서 분석했습니다.\n\n" + lastMessage.getMessage());
+                    return;
+                }
+
                 final KakaoParser.KakaoMessage finalLastMessage = lastMessage;
 
                 System.out.println("🎯 마지막 상대방 메시지: " + lastMessage.getMessage());
@@ -1059,11 +1447,11 @@ public class MainController {
                     }
 
                     showAlert("가져오기 완료!",
-                            String.format("📊 전체 대화: %d개 메시지\n" +
+                            String.format("📊 최근 대화: %d개 메시지\n" +
                                     "🎯 마지막 메시지 분석 완료!\n\n" +
                                     "감정: %s %s (%d%%)\n" +
                                     "추천 답변이 준비되었습니다.",
-                                    allMessages.size(),
+                                    result.getTotalMessageCount(),
                                     analyzedMessage.getEmotion().getEmoji(),
                                     analyzedMessage.getEmotion().getKorean(),
                                     analyzedMessage.getIntensityPercent()),
@@ -1087,32 +1475,10 @@ public class MainController {
 
     // 🆕 이전 대화를 맥락 문자열로 변환
     private String buildConversationContext(List<Message> messages, String contactName) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("이전 대화 맥락 (최근 ").append(messages.size()).append("개):\n\n");
-
-        for (int i = 0; i < messages.size(); i++) {
-            Message msg = messages.get(i);
-
-            // 상대방이 한 말
-            sb.append(String.format("%d. [%s] %s: \"%s\"\n",
-                    i + 1,
-                    msg.getFormattedTimestamp(),
-                    contactName,
-                    msg.getContent()));
-
-            // 감정 분석 결과
-            sb.append(String.format("   └ 감정: %s (%d%%)\n",
-                    msg.getEmotion().getKorean(),
-                    msg.getIntensityPercent()));
-
-            // 내가 답한 내용
-            sb.append(String.format("   └ 나의 답변: \"%s\"\n\n",
-                    msg.getRecommendedResponse()));
-        }
-
-        sb.append("위 대화를 참고하여 지금 받은 메시지를 분석하세요.\n");
-
-        return sb.toString();
+        // 🆕 줄 포맷은 ConversationWindow에서 (String.format 없이)
+        ConversationWindow<Message> window = ConversationWindow.forHistory(messages.size(), contactName);
+        window.pushAll(messages);
+        return window.render();
     }
 
     private String hexToRgba(String hex, double alpha) {
@@ -75,6 +75,8 @@ public class MainApp extends Application {
     
     @Override
     public void stop() {
+        // 🆕 아직 디스크에 쓰지 않은 변경 저장
+        service.WriteBehindWriter.getInstance().shutdown();
         System.out.println("프로그램을 종료합니다.");
     }
 
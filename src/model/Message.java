@@ -4,6 +4,8 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
 public class Message {
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    
     private String content;
     private Emotion emotion;
     private double intensity;
@@ -63,8 +65,7 @@ public class Message {
     }
     
     public String getFormattedTimestamp() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
-        return timestamp.format(formatter);
+        return timestamp.format(TIMESTAMP_FORMAT);
     }
     
     public int getIntensityPercent() {
@@ -0,0 +1,207 @@
+package service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Gemini API 호출 속도 / 동시 요청 수 조절 (모든 GeminiService가 함께 사용)
+ * - 토큰 버킷: 분당 요청 수를 넘지 않게 (잠깐 몰리는 건 burst개까지 허용)
+ * - 동시 요청 한도 (AIMD): 성공할 때마다 조금씩 늘리고, 429 / 5xx면 절반으로
+ * - 속도도 같은 방식: 429 / 5xx면 절반, 성공하면 설정값까지 조금씩 회복
+ * - Retry-After를 받으면 그 시각까지 새 요청을 보내지 않음
+ *
+ * acquire는 기다리지 않고 future를 돌려주며, 자리가 나면 순서대로 완료됨
+ * 요청이 끝나면 (성공 / 실패 모두) 반드시 release를 한 번 호출해야 함
+ */
+public class AdaptiveRateLimiter {
+    private static final int DEFAULT_REQUESTS_PER_MINUTE = 60;
+    private static final int DEFAULT_MAX_CONCURRENCY = 8;
+    private static final int BURST = 5;
+    private static final double MIN_REQUESTS_PER_MINUTE = 2;
+    private static final double RATE_RECOVERY_STEPS = 50; // 성공 몇 번이면 설정 속도까지 회복하는지
+
+    private final double maxRatePerSecond;
+    private final double minRatePerSecond;
+    private final int maxConcurrency;
+
+    private double ratePerSecond;
+    private double tokens;
+    private long lastRefillNanos;
+    private double concurrencyLimit;
+    private int inFlight = 0;
+    private long pausedUntilNanos;
+    private boolean wakeupScheduled = false;
+    private final Deque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+
+    private long throttledCount = 0;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "gemini-rate-limiter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public AdaptiveRateLimiter() {
+        this(DEFAULT_REQUESTS_PER_MINUTE, DEFAULT_MAX_CONCURRENCY);
+    }
+
+    /**
+     * @param requestsPerMinute 최대 속도 (API 키의 할당량에 맞게)
+     * @param maxConcurrency 최대 동시 요청 수 (처음에는 절반에서 시작)
+     */
+    public AdaptiveRateLimiter(int requestsPerMinute, int maxConcurrency) {
+        this.maxRatePerSecond = requestsPerMinute / 60.0;
+        this.minRatePerSecond = Math.min(maxRatePerSecond, MIN_REQUESTS_PER_MINUTE / 60.0);
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.ratePerSecond = maxRatePerSecond;
+        this.tokens = Math.min(BURST, Math.max(1, requestsPerMinute));
+        this.concurrencyLimit = Math.max(1, this.maxConcurrency / 2);
+        this.lastRefillNanos = System.nanoTime();
+        this.pausedUntilNanos = lastRefillNanos;
+    }
+
+    /**
+     * 요청을 보내도 될 때 완료되는 future
+     */
+    public CompletableFuture<Void> acquire() {
+        CompletableFuture<Void> permit = new CompletableFuture<>();
+        synchronized (this) {
+            waiters.addLast(permit);
+        }
+        // 차례를 받기 전에 취소되면 (제한 시간 초과 등) 대기열에서 바로 뺌
+        permit.whenComplete((ignored, error) -> {
+            if (permit.isCancelled()) {
+                synchronized (this) {
+                    waiters.remove(permit);
+                }
+            }
+        });
+        dispatch();
+        return permit;
+    }
+
+    /**
+     * 요청 하나가 끝났을 때
+     * @param statusCode HTTP 상태 코드 (응답 없이 실패했으면 -1)
+     * @param retryAfterMillis 서버가 알려준 대기 시간 (없으면 0)
+     */
+    public void release(int statusCode, long retryAfterMillis) {
+        synchronized (this) {
+            inFlight--;
+            long now = System.nanoTime();
+
+            if (statusCode == 429 || statusCode >= 500) {
+                // 곱셈 감소: 동시 한도와 속도를 절반으로, 모아 둔 토큰도 버림
+                throttledCount++;
+                concurrencyLimit = Math.max(1, concurrencyLimit / 2);
+                refill(now);
+                ratePerSecond = Math.max(minRatePerSecond, ratePerSecond / 2);
+                tokens = 0;
+                if (retryAfterMillis > 0) {
+                    pausedUntilNanos = Math.max(pausedUntilNanos, now + TimeUnit.MILLISECONDS.toNanos(retryAfterMillis));
+                }
+                System.out.println("⏸️ API 한도 조절 (코드 " + statusCode + "): 동시 " + getConcurrencyLimit()
+                    + "개, 분당 " + Math.round(getRequestsPerMinute()) + "회"
+                    + (retryAfterMillis > 0 ? ", " + (retryAfterMillis / 1000.0) + "초 대기" : ""));
+
+            } else if (statusCode >= 200 && statusCode < 300) {
+                // 덧셈 증가: 한도만큼 성공하면 동시 요청 1개 늘어남
+                concurrencyLimit = Math.min(maxConcurrency, concurrencyLimit + 1 / concurrencyLimit);
+                refill(now);
+                ratePerSecond = Math.min(maxRatePerSecond, ratePerSecond + maxRatePerSecond / RATE_RECOVERY_STEPS);
+            }
+            // 그 밖의 오류 (400, 403, 네트워크 오류 등)는 할당량과 무관하므로 한도는 그대로
+        }
+        dispatch();
+    }
+
+    // ========== 지표 ==========
+
+    public synchronized int getConcurrencyLimit() {
+        return (int) concurrencyLimit;
+    }
+
+    public synchronized double getRequestsPerMinute() {
+        return ratePerSecond * 60;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueued() {
+        return waiters.size();
+    }
+
+    // 지금까지 429 / 5xx로 한도를 줄인 횟수
+    public synchronized long getThrottledCount() {
+        return throttledCount;
+    }
+
+    // 지금 요청하면 기다리지 않고 바로 보낼 수 있는지 (헤지 요청은 여유가 있을 때만)
+    public synchronized boolean hasSpareCapacity() {
+        long now = System.nanoTime();
+        refill(now);
+        return waiters.isEmpty() && inFlight < (int) concurrencyLimit && tokens >= 1 && pausedUntilNanos <= now;
+    }
+
+    // Retry-After 때문에 남은 대기 시간 (없으면 0)
+    public synchronized long getPausedMillis() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(pausedUntilNanos - System.nanoTime()));
+    }
+
+    // ========== 내부 ==========
+
+    // 보낼 수 있는 만큼 대기 순서대로 완료 (future 완료는 잠금 밖에서)
+    private void dispatch() {
+        List<CompletableFuture<Void>> ready = new ArrayList<>();
+        synchronized (this) {
+            long now = System.nanoTime();
+            refill(now);
+            while (!waiters.isEmpty()) {
+                if (waiters.peekFirst().isDone()) {
+                    waiters.pollFirst(); // 취소된 요청
+                    continue;
+                }
+                if (inFlight >= (int) concurrencyLimit) {
+                    break; // release에서 다시 시도
+                }
+                long waitNanos = Math.max(pausedUntilNanos - now,
+                    tokens >= 1 ? 0 : (long) ((1 - tokens) / ratePerSecond * 1e9));
+                if (waitNanos > 0) {
+                    scheduleWakeup(waitNanos);
+                    break;
+                }
+                tokens -= 1;
+                inFlight++;
+                ready.add(waiters.pollFirst());
+            }
+        }
+        for (CompletableFuture<Void> permit : ready) {
+            if (!permit.complete(null)) {
+                release(-1, 0); // 그 사이에 취소됨
+            }
+        }
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(BURST, tokens + (now - lastRefillNanos) / 1e9 * ratePerSecond);
+        lastRefillNanos = now;
+    }
+
+    private void scheduleWakeup(long delayNanos) {
+        if (wakeupScheduled) {
+            return;
+        }
+        wakeupScheduled = true;
+        scheduler.schedule(() -> {
+            synchronized (this) {
+                wakeupScheduled = false;
+            }
+            dispatch();
+        }, delayNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,371 @@
+package service;
+
+import model.Emotion;
+import model.MBTI;
+import model.Message;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * 감정 분석 결과 캐시 (메모리 LRU + data/cache/analysis.cache)
+ * 같은 문장을 다시 분석하거나 같은 대화를 다시 가져오면 API를 호출하지 않고 저장된 결과를 돌려줌
+ *
+ * 키: (정규화한 문장, MBTI, 맥락 해시, 프롬프트 버전)의 64비트 해시
+ * - 메모리: 최근 사용한 maxEntries개 (넘치면 가장 오래 안 쓴 것부터 버림)
+ * - 디스크: 추가만 하는 기록 파일 + 메모리의 키 → 위치 색인, 버린 기록이 많아지면 새 파일로 정리
+ * - ttl이 지난 결과는 없는 것으로 취급
+ *
+ * 기록 구조: [키 8][저장 시각 8][감정 번호 1 (-1 = 삭제 표시)][강도 8][추천 답변 길이 4][추천 답변 UTF-8]
+ */
+public class AnalysisCache {
+    private static final Path CACHE_FILE = Paths.get("data/cache/analysis.cache");
+    private static final int MAGIC = 0x45414331; // "EAC1"
+    private static final int DEFAULT_MAX_ENTRIES = 1000;
+    private static final Duration DEFAULT_TTL = Duration.ofDays(30);
+    private static final int RECORD_HEADER_BYTES = 8 + 8 + 1 + 8 + 4;
+    private static final int COMPACT_MIN_DEAD = 1000; // 버린 기록이 이보다 많고 살아있는 기록보다 많으면 정리
+
+    private static AnalysisCache shared;
+
+    private static class Entry {
+        final long createdMillis;
+        final Emotion emotion;
+        final double intensity;
+        final String recommendedResponse;
+
+        Entry(long createdMillis, Emotion emotion, double intensity, String recommendedResponse) {
+            this.createdMillis = createdMillis;
+            this.emotion = emotion;
+            this.intensity = intensity;
+            this.recommendedResponse = recommendedResponse;
+        }
+    }
+
+    private final Path path;
+    private final long ttlMillis;
+    private final LinkedHashMap<Long, Entry> memory;
+    private final Map<Long, Long> offsets = new HashMap<>(); // 키 → 디스크 기록 위치
+    private FileChannel channel;
+    private int deadRecords = 0;
+
+    private long memoryHits = 0;
+    private long diskHits = 0;
+    private long misses = 0;
+
+    public AnalysisCache() throws IOException {
+        this(CACHE_FILE, DEFAULT_MAX_ENTRIES, DEFAULT_TTL);
+    }
+
+    public AnalysisCache(Path path, int maxEntries, Duration ttl) throws IOException {
+        this.path = path;
+        this.ttlMillis = ttl.toMillis();
+        this.memory = new LinkedHashMap<Long, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        open();
+    }
+
+    /**
+     * 기본 위치의 캐시 (여러 GeminiService가 같은 파일을 함께 씀)
+     * @return 파일을 열 수 없으면 null (캐시 없이 동작)
+     */
+    public static synchronized AnalysisCache shared() {
+        if (shared == null) {
+            try {
+                shared = new AnalysisCache();
+            } catch (IOException e) {
+                System.err.println("⚠️ 분석 캐시를 열 수 없습니다 (캐시 없이 분석): " + e.getMessage());
+                return null;
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * 캐시 키
+     * @param context 맥락 기반 분석이면 대화 맥락 (단독 분석이면 null)
+     * @param promptVersion 프롬프트를 바꾸면 올려서 이전 결과를 쓰지 않게
+     */
+    public static long key(String text, MBTI mbti, String context, int promptVersion) {
+        long hash = 0xcbf29ce484222325L;
+        hash = (hash ^ promptVersion) * 0x100000001b3L;
+        hash = (hash ^ (mbti == null ? MBTI.UNKNOWN : mbti).ordinal()) * 0x100000001b3L;
+        hash = (hash ^ (context == null ? 0 : 1)) * 0x100000001b3L;
+        hash = DedupIndex.mix(hash, context);
+        hash = (hash ^ 0x1F) * 0x100000001b3L; // 구분자
+        hash = DedupIndex.mix(hash, normalize(text));
+        return DedupIndex.finish(hash);
+    }
+
+    // 유니코드 정규화 + 앞뒤 공백 제거 + 연속 공백은 하나로
+    static String normalize(String text) {
+        return Normalizer.normalize(text, Normalizer.Form.NFC).trim().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * @return 저장된 결과로 만든 새 메시지 (없거나 만료되었으면 null)
+     */
+    public synchronized Message get(long key, String text) {
+        Entry entry = memory.get(key);
+        if (entry != null && !isExpired(entry)) {
+            memoryHits++;
+            return toMessage(text, entry);
+        }
+
+        Long offset = offsets.get(key);
+        if (offset != null) {
+            try {
+                entry = readEntry(offset);
+                if (entry != null && !isExpired(entry)) {
+                    diskHits++;
+                    memory.put(key, entry);
+                    return toMessage(text, entry);
+                }
+            } catch (IOException e) {
+                System.err.println("⚠️ 분석 캐시 읽기 실패: " + e.getMessage());
+            }
+        }
+
+        if (entry != null) {
+            // 만료된 결과
+            remove(key);
+        }
+        misses++;
+        return null;
+    }
+
+    public synchronized void put(long key, Message message) {
+        Entry entry = new Entry(System.currentTimeMillis(), message.getEmotion(), message.getIntensity(),
+            message.getRecommendedResponse());
+        memory.put(key, entry);
+        try {
+            long offset = append(key, entry);
+            if (offsets.put(key, offset) != null) {
+                deadRecords++;
+            }
+            compactIfNeeded();
+        } catch (IOException e) {
+            System.err.println("⚠️ 분석 캐시 저장 실패: " + e.getMessage());
+        }
+    }
+
+    public synchronized void invalidate(long key) {
+        remove(key);
+    }
+
+    // 전체 삭제 (파일도 비움)
+    public synchronized void invalidateAll() {
+        memory.clear();
+        offsets.clear();
+        deadRecords = 0;
+        try {
+            channel.truncate(Integer.BYTES);
+        } catch (IOException e) {
+            System.err.println("⚠️ 분석 캐시 삭제 실패: " + e.getMessage());
+        }
+    }
+
+    public synchronized int size() {
+        return offsets.size();
+    }
+
+    public synchronized long getMemoryHits() { return memoryHits; }
+    public synchronized long getDiskHits() { return diskHits; }
+    public synchronized long getMisses() { return misses; }
+
+    public synchronized double getHitRate() {
+        long total = memoryHits + diskHits + misses;
+        return total == 0 ? 0 : (double) (memoryHits + diskHits) / total;
+    }
+
+    private boolean isExpired(Entry entry) {
+        return System.currentTimeMillis() - entry.createdMillis > ttlMillis;
+    }
+
+    private Message toMessage(String text, Entry entry) {
+        return new Message(text, entry.emotion, entry.intensity, entry.recommendedResponse);
+    }
+
+    private void remove(long key) {
+        memory.remove(key);
+        if (offsets.remove(key) == null) {
+            return;
+        }
+        try {
+            append(key, null);
+            deadRecords += 2; // 원래 기록 + 삭제 표시
+            compactIfNeeded();
+        } catch (IOException e) {
+            System.err.println("⚠️ 분석 캐시 저장 실패: " + e.getMessage());
+        }
+    }
+
+    // ========== 디스크 기록 ==========
+
+    private void open() throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        long validLength = Files.exists(path) ? scan() : -1;
+
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (validLength < 0) {
+            if (channel.size() > 0) {
+                System.err.println("⚠️ 분석 캐시 파일 형식이 달라 새로 만듭니다.");
+            }
+            channel.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(Integer.BYTES).putInt(MAGIC);
+            header.flip();
+            channel.write(header, 0);
+            return;
+        }
+
+        if (validLength < channel.size()) {
+            channel.truncate(validLength); // 쓰다가 끊긴 마지막 기록
+        }
+        compactIfNeeded();
+    }
+
+    /**
+     * 기록 전체를 한 번 훑어서 키 → 위치 색인 구성 (만료된 기록은 색인에 넣지 않음)
+     * @return 온전한 기록이 끝나는 위치 (형식이 다르면 -1)
+     */
+    private long scan() throws IOException {
+        long now = System.currentTimeMillis();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 64 * 1024))) {
+            try {
+                if (in.readInt() != MAGIC) {
+                    return -1;
+                }
+            } catch (EOFException e) {
+                return -1;
+            }
+
+            long position = Integer.BYTES;
+            while (true) {
+                long key;
+                Entry entry;
+                int length;
+                try {
+                    key = in.readLong();
+                    long createdMillis = in.readLong();
+                    byte emotion = in.readByte();
+                    double intensity = in.readDouble();
+                    length = in.readInt();
+                    byte[] response = new byte[length];
+                    in.readFully(response);
+                    entry = toEntry(createdMillis, emotion, intensity, response);
+                } catch (EOFException e) {
+                    return position;
+                }
+
+                if (offsets.remove(key) != null) {
+                    deadRecords++;
+                }
+                if (entry == null || now - entry.createdMillis > ttlMillis) {
+                    deadRecords++;
+                } else {
+                    offsets.put(key, position);
+                }
+                position += RECORD_HEADER_BYTES + length;
+            }
+        }
+    }
+
+    private long append(long key, Entry entry) throws IOException {
+        ByteBuffer buffer = encode(key, entry);
+        long offset = channel.size();
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        return offset;
+    }
+
+    // entry가 null이면 삭제 표시
+    private static ByteBuffer encode(long key, Entry entry) {
+        byte[] response = entry == null || entry.recommendedResponse == null
+            ? new byte[0] : entry.recommendedResponse.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_BYTES + response.length);
+        buffer.putLong(key)
+            .putLong(entry == null ? System.currentTimeMillis() : entry.createdMillis)
+            .put(entry == null ? -1 : (byte) entry.emotion.ordinal())
+            .putDouble(entry == null ? 0 : entry.intensity)
+            .putInt(response.length)
+            .put(response);
+        buffer.flip();
+        return buffer;
+    }
+
+    private Entry readEntry(long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        readFully(header, offset);
+        header.flip();
+        header.getLong(); // 키
+        long createdMillis = header.getLong();
+        byte emotion = header.get();
+        double intensity = header.getDouble();
+        ByteBuffer response = ByteBuffer.allocate(header.getInt());
+        readFully(response, offset + RECORD_HEADER_BYTES);
+        return toEntry(createdMillis, emotion, intensity, response.array());
+    }
+
+    private static Entry toEntry(long createdMillis, byte emotion, double intensity, byte[] response) {
+        if (emotion < 0 || emotion >= Emotion.values().length) {
+            return null;
+        }
+        return new Entry(createdMillis, Emotion.values()[emotion], intensity,
+            new String(response, StandardCharsets.UTF_8));
+    }
+
+    // 살아있는 기록만 임시 파일에 다시 쓰고 교체
+    private void compactIfNeeded() throws IOException {
+        if (deadRecords < COMPACT_MIN_DEAD || deadRecords < offsets.size()) {
+            return;
+        }
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Map<Long, Long> compacted = new HashMap<>();
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(Integer.BYTES).putInt(MAGIC);
+            header.flip();
+            out.write(header);
+            for (Map.Entry<Long, Long> record : offsets.entrySet()) {
+                Entry entry = readEntry(record.getValue());
+                if (entry == null || isExpired(entry)) {
+                    continue;
+                }
+                compacted.put(record.getKey(), out.position());
+                ByteBuffer buffer = encode(record.getKey(), entry);
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+            }
+        }
+
+        channel.close();
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        offsets.clear();
+        offsets.putAll(compacted);
+        deadRecords = 0;
+        System.out.println("🧹 분석 캐시 정리: " + offsets.size() + "개");
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("분석 캐시 파일이 잘렸습니다.");
+            }
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package service;
+
+import model.MBTI;
+import model.Message;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 카카오톡 대화 전체 일괄 감정 분석
+ * - 상대방 메시지마다 (또는 연속으로 보낸 묶음마다) 직전 대화를 맥락으로 분석 (ConversationWindow를 밀면서)
+ * - 🆕 itemsPerCall개(기본 DEFAULT_ITEMS_PER_CALL)씩 한 번의 API 호출로 분석 (대화 기록은 한 번만 보냄), 답이 빠진 것만 하나씩 다시
+ * - 동시에 최대 concurrency개만 API 호출 (🔧 실제로 보내는 속도는 GeminiService의 속도 조절기가 응답에 맞춰 조절)
+ * - 이미 저장된 메시지(중복 인덱스)는 API 호출 없이 건너뜀
+ * - 결과는 대화 순서대로 PERSIST_BATCH_SIZE개씩 모아서 저장 (취소해도 끝난 부분까지는 저장됨)
+ *
+ * analyze는 끝날 때까지 기다리므로 작업 스레드에서 호출하고, cancel은 어느 스레드에서나 호출 가능
+ */
+public class BulkAnalyzer {
+    private static final int DEFAULT_CONCURRENCY = 4;
+    private static final int DEFAULT_ITEMS_PER_CALL = 10; // API 호출 한 번에 분석할 단위 수
+    private static final int PERSIST_BATCH_SIZE = 50; // 한 번에 저장할 결과 수
+    private static final int CONTEXT_COUNT = 20;
+
+    // 진행 상황 (작업 스레드에서 호출되므로 UI 갱신은 Platform.runLater로 감싸야 함)
+    public interface ProgressListener {
+        void onProgress(int completed, int total);
+    }
+
+    public static class Summary {
+        private final int total;
+        private final int analyzed;
+        private final int skipped;
+        private final int failed;
+        private final boolean cancelled;
+
+        Summary(int total, int analyzed, int skipped, int failed, boolean cancelled) {
+            this.total = total;
+            this.analyzed = analyzed;
+            this.skipped = skipped;
+            this.failed = failed;
+            this.cancelled = cancelled;
+        }
+
+        public int getTotal() { return total; }
+        public int getAnalyzed() { return analyzed; }
+        public int getSkipped() { return skipped; }
+        public int getFailed() { return failed; }
+        public boolean isCancelled() { return cancelled; }
+
+        // 여러 번의 분석 결과 합계 (여러 상대 / 여러 대화)
+        public Summary plus(Summary other) {
+            return new Summary(total + other.total, analyzed + other.analyzed, skipped + other.skipped,
+                failed + other.failed, cancelled || other.cancelled);
+        }
+
+        public static Summary empty() {
+            return new Summary(0, 0, 0, 0, false);
+        }
+    }
+
+    // 분석 단위: messages[first..last] (모두 상대방 메시지)
+    private static class Unit {
+        final int first;
+        final int last;
+        final String content;
+
+        Unit(int first, int last, String content) {
+            this.first = first;
+            this.last = last;
+            this.content = content;
+        }
+    }
+
+    // 분석을 기다리는 단위 (맥락은 단위 하나만 따로 다시 요청할 때 사용)
+    private static class Pending {
+        final int position;
+        final Unit unit;
+        final String context;
+
+        Pending(int position, Unit unit, String context) {
+            this.position = position;
+            this.unit = unit;
+            this.context = context;
+        }
+    }
+
+    private final GeminiService geminiService;
+    private final DataManager dataManager;
+    private int concurrency = DEFAULT_CONCURRENCY;
+    private int itemsPerCall = DEFAULT_ITEMS_PER_CALL;
+    private boolean groupBursts = true;
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+    public BulkAnalyzer(GeminiService geminiService, DataManager dataManager) {
+        this.geminiService = geminiService;
+        this.dataManager = dataManager;
+    }
+
+    public void setConcurrency(int concurrency) {
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    // 🆕 한 번의 API 호출로 분석할 최대 단위 수 (1이면 하나씩)
+    public void setItemsPerCall(int itemsPerCall) {
+        this.itemsPerCall = Math.max(1, itemsPerCall);
+    }
+
+    // true면 상대방이 연달아 보낸 메시지를 한 번에 분석 (API 호출 수 감소)
+    public void setGroupBursts(boolean groupBursts) {
+        this.groupBursts = groupBursts;
+    }
+
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    public Summary analyze(KakaoParser.ParseResult result, String myName, String contactName,
+                           MBTI mbti, ProgressListener listener) throws InterruptedException {
+        return analyze(result.getMessages(), myName, contactName, mbti, listener);
+    }
+
+    /**
+     * @param messages 시간 순서의 대화 전체 (맥락으로도 사용)
+     */
+    public Summary analyze(List<KakaoParser.KakaoMessage> messages, String myName, String contactName,
+                           MBTI mbti, ProgressListener listener) throws InterruptedException {
+        List<Unit> units = buildUnits(messages, contactName);
+        int total = units.size();
+        System.out.println("📦 일괄 분석 시작: 상대방 메시지 " + total + "건 (동시 " + concurrency + "개, 호출당 최대 "
+            + itemsPerCall + "건)");
+
+        Run run = new Run(messages, myName, contactName, mbti, listener, total);
+        // 🆕 맥락 창을 대화 처음부터 한 메시지씩 밀면서 단위마다 맥락 문자열을 만듦 (각 줄은 한 번만 포맷)
+        ConversationWindow<KakaoParser.KakaoMessage> window = ConversationWindow.forKakao(CONTEXT_COUNT, myName, contactName);
+        List<Pending> batch = new ArrayList<>();
+        int pushed = 0;
+
+        for (int i = 0; i < total && !cancelled.get(); i++) {
+            Unit unit = units.get(i);
+            KakaoParser.KakaoMessage last = messages.get(unit.last);
+            if (dataManager.isDuplicate(DedupIndex.fingerprint(last.getDateTime(), contactName, unit.content))) {
+                run.skip(i);
+                continue;
+            }
+
+            while (pushed <= unit.last) {
+                window.push(messages.get(pushed++));
+            }
+            batch.add(new Pending(i, unit, window.render()));
+            if (batch.size() >= itemsPerCall) {
+                if (!run.submit(batch)) {
+                    break;
+                }
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty() && !cancelled.get()) {
+            run.submit(batch);
+        }
+
+        return run.finish();
+    }
+
+    /**
+     * 한 번의 analyze 실행 상태
+     * 비동기 호출이라 응답을 기다리는 동안 스레드를 잡지 않음, 진행 중인 호출 수만 concurrency개로 제한
+     * (맥락은 자리가 났을 때까지의 묶음만 만들어 두므로 대화 전체의 맥락을 미리 만들지 않음)
+     */
+    private class Run {
+        final List<KakaoParser.KakaoMessage> messages;
+        final String contactName;
+        final MBTI mbti;
+        final ProgressListener listener;
+        final int total;
+        final ConversationWindow.LineRenderer<KakaoParser.KakaoMessage> lines;
+        final OrderedCommitter committer;
+        final Semaphore inFlight = new Semaphore(concurrency);
+        final AtomicInteger completed = new AtomicInteger();
+        final AtomicInteger analyzed = new AtomicInteger();
+        final AtomicInteger skipped = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+
+        Run(List<KakaoParser.KakaoMessage> messages, String myName, String contactName, MBTI mbti,
+            ProgressListener listener, int total) {
+            this.messages = messages;
+            this.contactName = contactName;
+            this.mbti = mbti;
+            this.listener = listener;
+            this.total = total;
+            this.lines = ConversationWindow.kakaoLines(myName, contactName);
+            this.committer = new OrderedCommitter(total);
+        }
+
+        // 이미 저장된 단위
+        void skip(int position) {
+            skipped.incrementAndGet();
+            committer.complete(position, null);
+            progress();
+        }
+
+        /**
+         * 묶음 하나를 한 번의 호출로 (자리가 날 때까지 대기)
+         * @return 취소되었으면 false
+         */
+        boolean submit(List<Pending> batch) throws InterruptedException {
+            inFlight.acquire();
+            if (cancelled.get()) {
+                inFlight.release();
+                return false;
+            }
+
+            // 항목마다 결과를 기록하고, 묶음이 모두 끝나면 자리 반납
+            // 🔧 요청을 만들다가 바로 예외가 나도 자리를 반납하고 남은 항목은 실패로 기록 (finish가 영원히 기다리지 않도록)
+            CompletableFuture<?>[] recorded = new CompletableFuture<?>[batch.size()];
+            int wired = 0;
+            try {
+                List<GeminiService.BatchItem> items = new ArrayList<>(batch.size());
+                for (Pending pending : batch) {
+                    items.add(new GeminiService.BatchItem("m" + (pending.position + 1), pending.unit.content,
+                        pending.context, pending.unit.last + 1));
+                }
+                List<CompletableFuture<Message>> results = geminiService.analyzeBatchAsync(transcript(batch), items, mbti);
+
+                for (; wired < batch.size(); wired++) {
+                    Pending pending = batch.get(wired);
+                    recorded[wired] = results.get(wired).handle((message, error) -> {
+                        record(pending, message, error);
+                        return null;
+                    });
+                }
+            } catch (RuntimeException e) {
+                for (int k = wired; k < batch.size(); k++) {
+                    record(batch.get(k), null, e);
+                }
+                // 이미 연결된 항목은 그 결과를 기다린 뒤 반납
+                CompletableFuture.allOf(Arrays.copyOf(recorded, wired)).whenComplete((ignored, error) -> inFlight.release());
+                return true;
+            }
+            CompletableFuture.allOf(recorded).whenComplete((ignored, error) -> inFlight.release());
+            return true;
+        }
+
+        private void record(Pending pending, Message message, Throwable error) {
+            if (error == null) {
+                message.setContactName(contactName);
+                message.setTimestamp(messages.get(pending.unit.last).getDateTime());
+                analyzed.incrementAndGet();
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+                failed.incrementAndGet();
+                System.err.println("⚠️ 일괄 분석 실패 (" + (pending.position + 1) + "/" + total + "): " + cause.getMessage());
+            }
+            committer.complete(pending.position, error == null ? message : null);
+            progress();
+        }
+
+        private void progress() {
+            if (listener != null) {
+                listener.onProgress(completed.incrementAndGet(), total);
+            }
+        }
+
+        /**
+         * 묶음의 대화 기록: 단위마다 (맥락 CONTEXT_COUNT줄 ~ 단위 끝)을 이어 붙임
+         * 줄 번호는 대화 전체에서의 순번 (BatchItem의 transcriptLine), 건너뛴 구간은 "..."
+         */
+        private String transcript(List<Pending> batch) {
+            StringBuilder sb = new StringBuilder();
+            int next = -1; // 다음에 쓸 메시지 위치 (이미 쓴 줄은 다시 쓰지 않음)
+            for (Pending pending : batch) {
+                int start = Math.max(0, pending.unit.last + 1 - CONTEXT_COUNT);
+                if (next >= 0 && start > next) {
+                    sb.append("...\n");
+                }
+                for (int m = Math.max(start, next); m <= pending.unit.last; m++) {
+                    sb.append(m + 1).append(". ");
+                    lines.render(messages.get(m), sb);
+                }
+                next = Math.max(next, pending.unit.last + 1);
+            }
+            return sb.toString();
+        }
+
+        // 진행 중인 호출을 모두 기다린 뒤 남은 결과 저장 (취소되면 새 호출만 멈춤)
+        Summary finish() throws InterruptedException {
+            inFlight.acquire(concurrency);
+            committer.flush();
+
+            int notRun = total - analyzed.get() - skipped.get() - failed.get();
+            System.out.println("✅ 일괄 분석 " + (cancelled.get() ? "중단" : "완료") + ": 분석 " + analyzed.get()
+                + "건, 중복 " + skipped.get() + "건, 실패 " + failed.get() + "건"
+                + (notRun > 0 ? ", 취소 " + notRun + "건" : ""));
+            return new Summary(total, analyzed.get(), skipped.get(), failed.get(), cancelled.get());
+        }
+    }
+
+    // 상대방 메시지를 분석 단위로 묶기
+    private List<Unit> buildUnits(List<KakaoParser.KakaoMessage> messages, String contactName) {
+        List<Unit> units = new ArrayList<>();
+        int i = 0;
+        while (i < messages.size()) {
+            if (!messages.get(i).getUser().equals(contactName)) {
+                i++;
+                continue;
+            }
+
+            int first = i;
+            StringBuilder content = new StringBuilder(messages.get(i).getMessage());
+            while (groupBursts && i + 1 < messages.size() && messages.get(i + 1).getUser().equals(contactName)) {
+                content.append('\n').append(messages.get(++i).getMessage());
+            }
+            units.add(new Unit(first, i, content.toString()));
+            i++;
+        }
+        return units;
+    }
+
+    /**
+     * 끝나는 순서와 상관없이 대화 순서대로 저장
+     * 앞 단위가 모두 끝난 결과만 모아 두었다가 PERSIST_BATCH_SIZE개가 되면 한 번에 저장
+     */
+    private class OrderedCommitter {
+        private final Message[] results;
+        private final boolean[] done;
+        private int next = 0;
+        private final List<Message> pending = new ArrayList<>();
+
+        OrderedCommitter(int total) {
+            this.results = new Message[total];
+            this.done = new boolean[total];
+        }
+
+        // message가 null이면 건너뛴 단위 (중복 / 실패 / 취소)
+        synchronized void complete(int position, Message message) {
+            results[position] = message;
+            done[position] = true;
+            while (next < done.length && done[next]) {
+                if (results[next] != null) {
+                    pending.add(results[next]);
+                    results[next] = null;
+                }
+                next++;
+            }
+            if (pending.size() >= PERSIST_BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        synchronized void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            dataManager.saveMessages(pending);
+            pending.clear();
+        }
+    }
+}
@@ -5,12 +5,16 @@ import model.MBTI;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.time.LocalDateTime;
 import java.util.*;
 
 public class ContactManager {
     private static final String CONTACTS_FILE = "data/contacts.txt";
     private Map<String, Contact> contacts;
+    // 🆕 파일 쓰기는 쓰기 스레드에서 모아서 한 번만 (변경된 연락처 이름이 레코드)
+    private final WriteBehindWriter writer = WriteBehindWriter.getInstance();
+    private final WriteBehindWriter.BatchSink<String> contactsSink = this::writeContacts;
     
     public ContactManager() {
         this.contacts = new HashMap<>();
@@ -18,91 +22,130 @@ public class ContactManager {
         System.out.println("📇 연락처 매니저 초기화 완료 (연락처 " + contacts.size() + "개)");
     }
     
+    // 🔧 변경은 잠금 안에서, 저장 예약은 잠금 밖에서 (쓰기 스레드도 같은 잠금을 사용하므로)
     public void saveContact(Contact contact) {
         if (contact == null || contact.getName() == null || contact.getName().trim().isEmpty()) {
             return;
         }
         
-        contacts.put(contact.getName(), contact);
-        saveToFile();
+        synchronized (this) {
+            contacts.put(contact.getName(), contact);
+        }
+        saveToFile(contact.getName());
         System.out.println("💾 연락처 저장: " + contact.getDisplayInfo());
     }
     
-    public Contact getContact(String name) {
+    public synchronized Contact getContact(String name) {
         return contacts.get(name);
     }
     
-    public boolean hasContact(String name) {
+    public synchronized boolean hasContact(String name) {
         return contacts.containsKey(name);
     }
     
-    public List<Contact> getAllContacts() {
+    public synchronized List<Contact> getAllContacts() {
         List<Contact> list = new ArrayList<>(contacts.values());
         list.sort(Comparator.comparing(Contact::getName));
         return list;
     }
     
-    public Set<String> getAllContactNames() {
+    public synchronized Set<String> getAllContactNames() {
         return new TreeSet<>(contacts.keySet());
     }
     
     public void setMbti(String name, MBTI mbti) {
-        Contact contact = contacts.get(name);
+        Contact contact;
+        synchronized (this) {
+            contact = contacts.get(name);
+            if (contact != null) {
+                contact.setMbti(mbti);
+            }
+        }
         if (contact != null) {
-            contact.setMbti(mbti);
-            saveToFile();
+            saveToFile(name);
             System.out.println("✅ MBTI 설정: " + name + " → " + mbti.getCode());
         }
     }
     
     public void setNotes(String name, String notes) {
-        Contact contact = contacts.get(name);
+        Contact contact;
+        synchronized (this) {
+            contact = contacts.get(name);
+            if (contact != null) {
+                contact.setNotes(notes);
+            }
+        }
         if (contact != null) {
-            contact.setNotes(notes);
-            saveToFile();
+            saveToFile(name);
         }
     }
     
     public void setAutoGeneratedProfile(String name, String profile) {
-        Contact contact = contacts.get(name);
+        Contact contact;
+        synchronized (this) {
+            contact = contacts.get(name);
+            if (contact != null) {
+                contact.setAutoGeneratedProfile(profile);
+            }
+        }
         if (contact != null) {
-            contact.setAutoGeneratedProfile(profile);
-            saveToFile();
+            saveToFile(name);
             System.out.println("✅ 자동 프로필 저장: " + name);
         }
     }
 
     public void deleteContact(String name) {
-        if (contacts.remove(name) != null) {
-            saveToFile();
+        boolean removed;
+        synchronized (this) {
+            removed = contacts.remove(name) != null;
+        }
+        if (removed) {
+            saveToFile(name);
             System.out.println("🗑️ 연락처 삭제: " + name);
         }
     }
     
     public void clearAll() {
-        contacts.clear();
-        saveToFile();
+        synchronized (this) {
+            contacts.clear();
+        }
+        saveToFile(null);
         System.out.println("🗑️ 모든 연락처 삭제");
     }
     
-    private void saveToFile() {
-        try {
-            File dataDir = new File("data");
-            if (!dataDir.exists()) {
-                dataDir.mkdirs();
+    // 🔧 바로 쓰지 않고 쓰기 스레드에 예약 (여러 변경이 모이면 파일은 한 번만 씀)
+    private void saveToFile(String changedName) {
+        writer.submit(contactsSink, changedName);
+    }
+    
+    // 쓰기 스레드에서 호출: 현재 연락처 전체를 임시 파일에 쓰고 교체
+    private void writeContacts(List<String> changedNames, boolean sync) throws IOException {
+        List<String> lines = new ArrayList<>();
+        synchronized (this) {
+            for (Contact contact : contacts.values()) {
+                lines.add(contactToString(contact));
             }
-            
-            try (PrintWriter writer = new PrintWriter(
-                new OutputStreamWriter(new FileOutputStream(CONTACTS_FILE), StandardCharsets.UTF_8))) {
-                
-                for (Contact contact : contacts.values()) {
-                    writer.println(contactToString(contact));
-                }
+        }
+        
+        File dataDir = new File("data");
+        if (!dataDir.exists()) {
+            dataDir.mkdirs();
+        }
+        
+        File tmp = new File(CONTACTS_FILE + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            PrintWriter printer = new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            for (String line : lines) {
+                printer.println(line);
+            }
+            printer.flush();
+            if (sync) {
+                out.getFD().sync();
             }
-        } catch (IOException e) {
-            System.err.println("❌ 연락처 저장 실패: " + e.getMessage());
-            e.printStackTrace();
         }
+        
+        Files.move(tmp.toPath(), Paths.get(CONTACTS_FILE),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
     }
     
     private void loadContacts() {
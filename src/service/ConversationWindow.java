@@ -0,0 +1,162 @@
+package service;
+
+import model.Message;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * 분석 프롬프트용 대화 맥락 창 (최근 capacity개)
+ * - 메시지를 넣을 때 한 줄로 한 번만 만들어 링 버퍼에 보관 (밀려난 줄은 버림)
+ * - render는 보관된 줄을 이어 붙이기만 함 (String.format / DateTimeFormatter 없음)
+ * 대화를 한 메시지씩 앞으로 밀면서 메시지마다 맥락을 만들 때 창 크기만큼 다시 포맷하지 않음
+ *
+ * 사용법:
+ *   ConversationWindow<KakaoMessage> window = ConversationWindow.forKakao(20, 나, 상대방);
+ *   for (KakaoMessage msg : messages) { window.push(msg); ... window.render() ... }
+ */
+public class ConversationWindow<T> {
+
+    // 항목 하나를 한 줄(또는 여러 줄)로 그리기 (끝의 줄바꿈 포함)
+    public interface LineRenderer<T> {
+        void render(T item, StringBuilder out);
+    }
+
+    private final String[] lines;
+    private int head = 0; // 가장 오래된 줄 위치
+    private int size = 0;
+    private int totalLength = 0;
+    private final IntFunction<String> header; // 현재 줄 수 → 머리말
+    private final String footer;
+    private final boolean numbered; // "1. " 처럼 창 안 순번을 붙일지 (밀릴 때마다 바뀌므로 render에서)
+    private final LineRenderer<T> renderer;
+    private final StringBuilder scratch = new StringBuilder(128);
+
+    public ConversationWindow(int capacity, IntFunction<String> header, String footer, boolean numbered,
+                              LineRenderer<T> renderer) {
+        this.lines = new String[Math.max(1, capacity)];
+        this.header = header;
+        this.footer = footer;
+        this.numbered = numbered;
+        this.renderer = renderer;
+    }
+
+    /**
+     * 카카오톡 대화용: "[MM-dd HH:mm] 나/상대방: 내용"
+     */
+    public static ConversationWindow<KakaoParser.KakaoMessage> forKakao(int capacity, String mainUser, String otherUser) {
+        return new ConversationWindow<>(capacity,
+            count -> "최근 대화 내용 (분석 대상은 '상대방'입니다):\n\n", "", false,
+            kakaoLines(mainUser, otherUser));
+    }
+
+    // 🆕 카카오톡 메시지 한 줄 (창 밖에서 대화 기록을 직접 만들 때도 사용)
+    public static LineRenderer<KakaoParser.KakaoMessage> kakaoLines(String mainUser, String otherUser) {
+        return (msg, out) -> {
+            // 🆕 나와 상대방 명확히 구분 (다른 사람이 있으면 이름 표시)
+            String sender;
+            if (msg.getUser().equals(mainUser)) {
+                sender = "나";
+            } else if (msg.getUser().equals(otherUser)) {
+                sender = "상대방";
+            } else {
+                sender = msg.getUser();
+            }
+            out.append('[');
+            appendShortTimestamp(msg.getDateTime(), out);
+            out.append("] ").append(sender).append(": ").append(msg.getMessage()).append('\n');
+        };
+    }
+
+    /**
+     * 저장된 분석 기록용: 상대방 메시지 / 감정 / 나의 답변 (번호는 창 안 순번)
+     */
+    public static ConversationWindow<Message> forHistory(int capacity, String contactName) {
+        return new ConversationWindow<>(capacity,
+            count -> "이전 대화 맥락 (최근 " + count + "개):\n\n",
+            "위 대화를 참고하여 지금 받은 메시지를 분석하세요.\n", true,
+            (msg, out) -> {
+                out.append('[');
+                appendTimestamp(msg.getTimestamp(), out);
+                out.append("] ").append(contactName).append(": \"").append(msg.getContent()).append("\"\n");
+                out.append("   └ 감정: ").append(msg.getEmotion().getKorean())
+                    .append(" (").append(msg.getIntensityPercent()).append("%)\n");
+                out.append("   └ 나의 답변: \"").append(msg.getRecommendedResponse()).append("\"\n\n");
+            });
+    }
+
+    // 한 칸 밀기 (가득 찼으면 가장 오래된 줄이 빠짐)
+    public void push(T item) {
+        scratch.setLength(0);
+        renderer.render(item, scratch);
+        String line = scratch.toString();
+
+        int tail = (head + size) % lines.length;
+        if (size == lines.length) {
+            totalLength -= lines[head].length();
+            head = (head + 1) % lines.length;
+        } else {
+            size++;
+        }
+        lines[tail] = line;
+        totalLength += line.length();
+    }
+
+    public void pushAll(List<? extends T> items) {
+        // 창에 남을 마지막 capacity개만 그림
+        for (int i = Math.max(0, items.size() - lines.length); i < items.size(); i++) {
+            push(items.get(i));
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = null;
+        }
+        head = 0;
+        size = 0;
+        totalLength = 0;
+    }
+
+    public String render() {
+        String title = header.apply(size);
+        StringBuilder sb = new StringBuilder(title.length() + totalLength + footer.length() + (numbered ? size * 4 : 0));
+        sb.append(title);
+        for (int i = 0; i < size; i++) {
+            if (numbered) {
+                sb.append(i + 1).append(". ");
+            }
+            sb.append(lines[(head + i) % lines.length]);
+        }
+        sb.append(footer);
+        return sb.toString();
+    }
+
+    // ========== 날짜 (포맷터 없이 자릿수 직접) ==========
+
+    // MM-dd HH:mm
+    static void appendShortTimestamp(LocalDateTime dateTime, StringBuilder out) {
+        appendTwoDigits(dateTime.getMonthValue(), out);
+        out.append('-');
+        appendTwoDigits(dateTime.getDayOfMonth(), out);
+        out.append(' ');
+        appendTwoDigits(dateTime.getHour(), out);
+        out.append(':');
+        appendTwoDigits(dateTime.getMinute(), out);
+    }
+
+    // yyyy-MM-dd HH:mm
+    static void appendTimestamp(LocalDateTime dateTime, StringBuilder out) {
+        out.append(dateTime.getYear()).append('-');
+        appendShortTimestamp(dateTime, out);
+    }
+
+    private static void appendTwoDigits(int value, StringBuilder out) {
+        out.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+}
@@ -0,0 +1,245 @@
+package service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * 재사용 가능한 커서 방식 CSV 토크나이저 (RFC 4180)
+ * - 버퍼 안에서 필드의 시작/끝 위치만 기록하고, 문자열은 getField를 호출할 때만 생성
+ * - 큰따옴표 안의 쉼표와 줄바꿈, "" 이스케이프 처리
+ * - Reader에서 읽을 때는 레코드가 버퍼 끝에 걸리면 버퍼를 당기거나 늘려서 다시 읽음
+ *
+ * 사용법:
+ *   while (tokenizer.next()) { tokenizer.getField(0) ... }
+ */
+public class CsvTokenizer {
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final Reader reader; // null이면 고정 버퍼만 읽음
+    private char[] buf;
+    private int pos;
+    private int limit;
+    private boolean eof;
+
+    // 현재 레코드의 필드 위치 (buf 기준)
+    private int[] fieldStarts = new int[8];
+    private int[] fieldEnds = new int[8];
+    private boolean[] fieldEscaped = new boolean[8]; // "" 가 들어 있어서 변환이 필요한지
+    private int fieldCount;
+    private int lineNumber = 0; // 현재 레코드가 시작된 줄 번호 (1부터)
+    private int nextLineNumber = 1;
+    private final StringBuilder unescaped = new StringBuilder();
+
+    public CsvTokenizer(Reader reader) {
+        this.reader = reader;
+        this.buf = new char[DEFAULT_BUFFER_SIZE];
+    }
+
+    // 이미 메모리에 있는 문자 배열 구간 [offset, offset + length)
+    public CsvTokenizer(char[] chars, int offset, int length) {
+        this.reader = null;
+        this.buf = chars;
+        this.pos = offset;
+        this.limit = offset + length;
+        this.eof = true;
+    }
+
+    /**
+     * 다음 레코드로 이동
+     * @return 더 읽을 레코드가 없으면 false
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            if (pos >= limit && !fill()) {
+                return false;
+            }
+
+            int end = tokenize(pos);
+            if (end >= 0) {
+                lineNumber = nextLineNumber;
+                nextLineNumber += countLines(pos, end);
+                pos = end;
+                return true;
+            }
+
+            // 레코드가 버퍼 끝에 걸림 → 더 읽고 처음부터 다시
+            // (파일 끝에 닿으면 eof 상태로 다시 나누므로 닫히지 않은 따옴표도 남은 내용 전체가 마지막 레코드)
+            fill();
+        }
+    }
+
+    /**
+     * start부터 레코드 하나를 나눠 필드 위치 기록
+     * @return 다음 레코드 시작 위치 (버퍼가 끝나서 레코드가 완성되지 않았으면 -1, 파일 끝이면 limit)
+     */
+    private int tokenize(int start) {
+        fieldCount = 0;
+        int i = start;
+
+        while (true) {
+            boolean escaped = false;
+            int fieldStart;
+            int fieldEnd;
+
+            if (i < limit && buf[i] == '"') {
+                // 따옴표 필드: 닫는 따옴표까지 ("" 는 따옴표 하나)
+                fieldStart = ++i;
+                while (true) {
+                    if (i >= limit) {
+                        if (!eof) {
+                            return -1;
+                        }
+                        fieldEnd = limit;
+                        break;
+                    }
+                    if (buf[i] == '"') {
+                        if (i + 1 < limit && buf[i + 1] == '"') {
+                            escaped = true;
+                            i += 2;
+                            continue;
+                        }
+                        if (i + 1 >= limit && !eof) {
+                            return -1; // 다음 문자가 따옴표일 수도 있음
+                        }
+                        fieldEnd = i++;
+                        break;
+                    }
+                    i++;
+                }
+                // 닫는 따옴표 뒤 구분자 전까지의 문자는 버림 (잘못된 형식 허용)
+                while (i < limit && buf[i] != ',' && buf[i] != '\n' && buf[i] != '\r') {
+                    i++;
+                }
+            } else {
+                fieldStart = i;
+                while (i < limit && buf[i] != ',' && buf[i] != '\n' && buf[i] != '\r') {
+                    i++;
+                }
+                fieldEnd = i;
+            }
+
+            if (i >= limit && !eof) {
+                return -1;
+            }
+            addField(fieldStart, fieldEnd, escaped);
+
+            if (i >= limit) {
+                return limit;
+            }
+            char c = buf[i++];
+            if (c == ',') {
+                continue;
+            }
+            if (c == '\r') {
+                if (i >= limit && !eof) {
+                    return -1;
+                }
+                if (i < limit && buf[i] == '\n') {
+                    i++;
+                }
+            }
+            return i;
+        }
+    }
+
+    private void addField(int start, int end, boolean escaped) {
+        if (fieldCount == fieldStarts.length) {
+            int capacity = fieldCount * 2;
+            fieldStarts = Arrays.copyOf(fieldStarts, capacity);
+            fieldEnds = Arrays.copyOf(fieldEnds, capacity);
+            fieldEscaped = Arrays.copyOf(fieldEscaped, capacity);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldEscaped[fieldCount] = escaped;
+        fieldCount++;
+    }
+
+    // 처리한 부분을 버퍼 앞으로 당기고 (필요하면 버퍼를 늘려서) 더 읽기
+    private boolean fill() throws IOException {
+        if (reader == null || eof) {
+            return false;
+        }
+
+        int remaining = limit - pos;
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, remaining);
+        } else if (remaining == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length * 2); // 레코드가 버퍼보다 큼
+        }
+        pos = 0;
+        limit = remaining;
+
+        int read = reader.read(buf, limit, buf.length - limit);
+        if (read < 0) {
+            eof = true;
+            return remaining > 0;
+        }
+        limit += read;
+        return true;
+    }
+
+    private int countLines(int from, int to) {
+        int lines = 0;
+        for (int i = from; i < to; i++) {
+            if (buf[i] == '\n') {
+                lines++;
+            }
+        }
+        return Math.max(lines, 1);
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    // 현재 레코드가 시작된 줄 번호 (따옴표 안 줄바꿈 포함해서 센 실제 줄)
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    // 빈 줄인지 (필드 하나, 내용 없음)
+    public boolean isBlankRecord() {
+        if (fieldCount != 1) {
+            return false;
+        }
+        for (int i = fieldStarts[0]; i < fieldEnds[0]; i++) {
+            if (!Character.isWhitespace(buf[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String getField(int index) {
+        return materialize(index, false);
+    }
+
+    // 앞뒤 공백을 뺀 필드 (String.trim 과 같은 기준, 문자열은 한 번만 생성)
+    public String getTrimmedField(int index) {
+        return materialize(index, true);
+    }
+
+    private String materialize(int index, boolean trim) {
+        int start = fieldStarts[index];
+        int end = fieldEnds[index];
+        if (trim) {
+            while (start < end && buf[start] <= ' ') start++;
+            while (end > start && buf[end - 1] <= ' ') end--;
+        }
+
+        if (!fieldEscaped[index]) {
+            return new String(buf, start, end - start);
+        }
+
+        unescaped.setLength(0);
+        for (int i = start; i < end; i++) {
+            unescaped.append(buf[i]);
+            if (buf[i] == '"' && i + 1 < end && buf[i + 1] == '"') {
+                i++;
+            }
+        }
+        return unescaped.toString();
+    }
+}
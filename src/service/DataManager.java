@@ -4,91 +4,192 @@ import model.Emotion;
 import model.Message;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CountDownLatch;
 
 public class DataManager {
+    // 🆕 이전 텍스트 형식 (이제는 가져오기/내보내기 및 이전(migration) 용도로만 사용)
     private static final String DATA_FILE = "emotion_data.txt";
-    private List<Message> messageHistory;
+    private static final String JOURNAL_FILE = "emotion_data.journal";
+    private static final String COMPACTING_FILE = JOURNAL_FILE + ".compacting";
+    private static final String MIGRATED_SUFFIX = ".migrated";
+    // 🆕 시작할 때 먼저 읽는 최근 메시지 수 (나머지는 백그라운드에서 로드)
+    private static final int FIRST_PAGE_SIZE = 200;
+    // 🆕 기간별 감정 집계 스냅샷 (쓰기 스레드가 최대 이 간격마다 저장)
+    private static final Path ROLLUP_FILE = Paths.get("data/messages/rollups.bin");
+    private static final long ROLLUP_SNAPSHOT_INTERVAL_MS = 30_000;
+    
+    private MessageHistory messageHistory = new MessageHistory(); // 🆕 열 단위 기록 (Message는 조회할 때만 생성)
+    private MessageStore store; // 🆕 이진 저장소 (data/messages/)
+    private MessageIndex index = new MessageIndex(); // 🆕 상대방/날짜/감정 인덱스
+    private EmotionAggregates aggregates = new EmotionAggregates(); // 🆕 누적 통계
+    private volatile EmotionRollups rollups = new EmotionRollups(); // 🆕 시간/일/주/월 집계 (자체 잠금)
+    private long lastRollupSnapshot = System.currentTimeMillis(); // 쓰기 스레드 전용
+    // 🆕 전체 로드 전이고 집계 스냅샷이 있으면 누적 통계도 스냅샷에서 (aggregates는 아직 첫 페이지뿐)
+    private boolean statsFromRollups = false;
+    private DedupIndex dedupIndex; // 🆕 이미 저장한 메시지 지문 (가져오기 중복 방지, 자체 잠금)
+    // 🆕 저장은 쓰기 스레드가 모아서 처리 (호출 스레드는 큐에 넣기만 함)
+    private final WriteBehindWriter writer = WriteBehindWriter.getInstance();
+    private final WriteBehindWriter.BatchSink<PendingWrite> storeSink = this::writeBatch;
+    
+    // 🆕 쓰기 스레드로 넘기는 저장 단위: 메시지 + 저장된 뒤 중복 인덱스에 넣을 지문
+    private static class PendingWrite {
+        final Message message;
+        final long[] fingerprints;
+        
+        PendingWrite(Message message, long[] fingerprints) {
+            this.message = message;
+            this.fingerprints = fingerprints;
+        }
+    }
+    
+    // 🆕 이전 기록 백그라운드 로딩 상태
+    private final CountDownLatch historyLoaded = new CountDownLatch(1);
+    private final List<Runnable> loadListeners = new ArrayList<>();
     
     public DataManager() {
-        this.messageHistory = new ArrayList<>();
         loadData();
         System.out.println("📁 데이터 매니저 초기화 완료 (메시지 " + messageHistory.size() + "개)");
     }
     
-    public void saveMessage(Message message) {
+    /**
+     * 같은 (시각, 상대방, 내용)이 이미 저장되어 있으면 저장하지 않음 🆕
+     * @param sourceFingerprints 함께 기록할 원본 지문 (OCR 이미지처럼 저장되는 메시지와 API 호출 전 확인 키가 다른 경우)
+     * @return 저장했으면 true
+     */
+    public boolean saveMessage(Message message, long... sourceFingerprints) {
         if (message == null) {
-            return;
+            return false;
         }
         
-        messageHistory.add(message);
-        saveData();
+        long fingerprint = DedupIndex.fingerprint(message.getTimestamp(), message.getContactName(), message.getContent());
+        synchronized (this) {
+            if (dedupIndex != null && !dedupIndex.reserve(fingerprint)) {
+                System.out.println("⏭️ 이미 저장된 메시지라 건너뜀: " + message.getSummary());
+                return false;
+            }
+            long[] reserved = new long[1 + sourceFingerprints.length];
+            int count = 0;
+            reserved[count++] = fingerprint;
+            for (long sourceFingerprint : sourceFingerprints) {
+                if (dedupIndex != null && dedupIndex.reserve(sourceFingerprint)) {
+                    reserved[count++] = sourceFingerprint;
+                }
+            }
+            addToHistory(message);
+            writer.submit(storeSink, new PendingWrite(message, Arrays.copyOf(reserved, count)));
+        }
         System.out.println("💾 메시지 저장 완료: " + message.getSummary() + " (상대: " + message.getContactName() + ")");
+        return true;
+    }
+    
+    /**
+     * 🆕 여러 메시지를 한 번에 저장 (일괄 분석 결과, 잠금 한 번 / 쓰기 스레드가 묶어서 기록)
+     * @return 실제로 저장한 개수 (중복 제외)
+     */
+    public int saveMessages(List<Message> messages) {
+        int saved = 0;
+        synchronized (this) {
+            for (Message message : messages) {
+                if (submitIfNew(message)) {
+                    saved++;
+                }
+            }
+        }
+        System.out.println("💾 메시지 " + saved + "개 저장 완료");
+        return saved;
+    }
+    
+    /**
+     * 🆕 이미 저장(분석)한 메시지인지 확인 (API 호출 전에 사용)
+     * @param fingerprint DedupIndex.fingerprint
+     */
+    public boolean isDuplicate(long fingerprint) {
+        return dedupIndex != null && dedupIndex.contains(fingerprint);
+    }
+    
+    // 🔧 중복이 아니면 기록에 넣고 저장 예약 (지문은 메모리에 예약만, 파일에는 쓰기 스레드가 저장 뒤에 기록)
+    private boolean submitIfNew(Message message) {
+        long fingerprint = DedupIndex.fingerprint(message.getTimestamp(), message.getContactName(), message.getContent());
+        if (dedupIndex != null && !dedupIndex.reserve(fingerprint)) {
+            return false;
+        }
+        addToHistory(message);
+        writer.submit(storeSink, new PendingWrite(message, dedupIndex == null ? new long[0] : new long[] { fingerprint }));
+        return true;
     }
     
-    public List<Message> getAllMessages() {
-        return new ArrayList<>(messageHistory);
+    // 🆕 기록과 인덱스에 함께 추가 (위치 = 기록 안의 순번)
+    private void addToHistory(Message msg) {
+        index.add(messageHistory.size(), msg);
+        aggregates.add(msg);
+        rollups.add(msg);
+        messageHistory.add(msg);
     }
     
-    public List<Message> getMessagesByDate(LocalDate date) {
+    public synchronized List<Message> getAllMessages() {
+        return messageHistory.range(0, messageHistory.size());
+    }
+    
+    public synchronized List<Message> getMessagesByDate(LocalDate date) {
         if (date == null) {
             return new ArrayList<>();
         }
         
-        return messageHistory.stream()
-            .filter(msg -> msg.getTimestamp().toLocalDate().equals(date))
-            .collect(Collectors.toList());
+        return collect(index.getByDate(date), 0);
     }
     
-    public List<Message> getMessagesByEmotion(Emotion emotion) {
+    public synchronized List<Message> getMessagesByEmotion(Emotion emotion) {
         if (emotion == null) {
             return new ArrayList<>();
         }
         
-        return messageHistory.stream()
-            .filter(msg -> msg.getEmotion() == emotion)
-            .collect(Collectors.toList());
+        BitSet positions = index.getByEmotion(emotion);
+        List<Message> result = new ArrayList<>(positions.cardinality());
+        for (int i = positions.nextSetBit(0); i >= 0; i = positions.nextSetBit(i + 1)) {
+            result.add(messageHistory.get(i));
+        }
+        return result;
     }
     
     // 🆕 상대방별 메시지 조회
-    public List<Message> getMessagesByContact(String contactName) {
+    public synchronized List<Message> getMessagesByContact(String contactName) {
         if (contactName == null || contactName.trim().isEmpty()) {
             return new ArrayList<>();
         }
         
-        return messageHistory.stream()
-            .filter(msg -> msg.getContactName().equals(contactName))
-            .collect(Collectors.toList());
+        return collect(index.getByContact(contactName), 0);
     }
     
     // 🆕 상대방별 메시지 조회 (최근 N개만)
-    public List<Message> getMessagesByContact(String contactName, int limit) {
+    public synchronized List<Message> getMessagesByContact(String contactName, int limit) {
         if (contactName == null || contactName.trim().isEmpty()) {
             return new ArrayList<>();
         }
         
-        List<Message> allMessages = messageHistory.stream()
-            .filter(msg -> msg.getContactName().equals(contactName))
-            .collect(Collectors.toList());
-        
-        // 최근 limit개만 반환
-        int size = allMessages.size();
-        int startIndex = Math.max(0, size - limit);
-        
-        return new ArrayList<>(allMessages.subList(startIndex, size));
+        // 최근 limit개만 반환 (인덱스 끝에서 바로 가져옴)
+        MessageIndex.PositionList positions = index.getByContact(contactName);
+        return collect(positions, Math.max(0, positions.size() - limit));
+    }
+    
+    private List<Message> collect(MessageIndex.PositionList positions, int from) {
+        List<Message> result = new ArrayList<>(positions.size() - from);
+        for (int i = from; i < positions.size(); i++) {
+            result.add(messageHistory.get(positions.get(i)));
+        }
+        return result;
     }
     
     // 🆕 모든 상대방 이름 목록
-    public Set<String> getAllContactNames() {
-        return messageHistory.stream()
-            .map(Message::getContactName)
-            .collect(Collectors.toSet());
+    public synchronized Set<String> getAllContactNames() {
+        return new HashSet<>(index.getContactNames());
     }
     
-    public List<Message> getRecentMessages(int count) {
+    public synchronized List<Message> getRecentMessages(int count) {
         if (count <= 0) {
             return new ArrayList<>();
         }
@@ -96,121 +197,397 @@ public class DataManager {
         int size = messageHistory.size();
         int startIndex = Math.max(0, size - count);
         
-        List<Message> recent = new ArrayList<>(messageHistory.subList(startIndex, size));
+        List<Message> recent = messageHistory.range(startIndex, size);
         Collections.reverse(recent);
         return recent;
     }
     
     public Map<LocalDate, Map<Emotion, Integer>> getDailyEmotionStats(int days) {
-        Map<LocalDate, Map<Emotion, Integer>> stats = new LinkedHashMap<>();
         LocalDate today = LocalDate.now();
+        return getDailyEmotionStats(null, today.minusDays(days - 1), today);
+    }
+    
+    // 🆕 기간 지정 일별 감정 통계 (상대 null = 전체, 집계 구간만 읽음)
+    public Map<LocalDate, Map<Emotion, Integer>> getDailyEmotionStats(String contactName, LocalDate from, LocalDate to) {
+        SortedMap<LocalDateTime, EmotionRollups.Bucket> buckets = rollups.query(contactName,
+            EmotionRollups.Granularity.DAY, from.atStartOfDay(), to.plusDays(1).atStartOfDay());
         
-        for (int i = days - 1; i >= 0; i--) {
-            LocalDate date = today.minusDays(i);
-            Map<Emotion, Integer> emotionCount = new HashMap<>();
+        Map<LocalDate, Map<Emotion, Integer>> stats = new LinkedHashMap<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            EmotionRollups.Bucket bucket = buckets.get(date.atStartOfDay());
+            stats.put(date, (bucket != null ? bucket : new EmotionRollups.Bucket()).toMap());
+        }
+        return stats;
+    }
+    
+    /**
+     * 🆕 기간별 감정 집계 조회 (예: 상대 X의 3년간 월별 분포)
+     * @param contactName null이면 전체 상대
+     * @return 구간 시작 시각 → 구간 (메시지가 있는 구간만)
+     */
+    public SortedMap<LocalDateTime, EmotionRollups.Bucket> getEmotionRollup(String contactName,
+                                                                           EmotionRollups.Granularity granularity,
+                                                                           LocalDateTime from, LocalDateTime to) {
+        return rollups.query(contactName, granularity, from, to);
+    }
+    
+    public synchronized Map<Emotion, Integer> getEmotionDistribution() {
+        return globalStats().toMap();
+    }
+    
+    public synchronized Emotion getMostFrequentEmotion() {
+        return globalStats().getMostFrequent();
+    }
+    
+    public synchronized double getAverageIntensity() {
+        return globalStats().getAverageIntensity();
+    }
+    
+    // 🆕 상대방별 누적 통계 (복사본)
+    public synchronized EmotionAggregates.Counts getContactStats(String contactName) {
+        if (statsFromRollups) {
+            return EmotionAggregates.Counts.of(rollups.getTotal(contactName));
+        }
+        return aggregates.getContact(contactName).copy();
+    }
+    
+    // 🆕 모든 상대방의 누적 통계 (복사본)
+    public synchronized Map<String, EmotionAggregates.Counts> getAllContactStats() {
+        Map<String, EmotionAggregates.Counts> stats = new HashMap<>();
+        for (String contactName : statsFromRollups ? rollups.getContactNames() : aggregates.getContactNames()) {
+            stats.put(contactName, getContactStats(contactName));
+        }
+        return stats;
+    }
+    
+    // 🔧 전체 로드 전에는 스냅샷의 메시지 수 (기록에는 아직 첫 페이지만 있음)
+    public synchronized int getTotalMessageCount() {
+        return statsFromRollups ? rollups.getMessageCount() : messageHistory.size();
+    }
+    
+    public synchronized int getTodayMessageCount() {
+        if (statsFromRollups) {
+            LocalDate today = LocalDate.now();
+            return rollups.query(null, EmotionRollups.Granularity.DAY, today.atStartOfDay(),
+                today.plusDays(1).atStartOfDay()).values().stream().mapToInt(EmotionRollups.Bucket::getTotal).sum();
+        }
+        return aggregates.getDay(LocalDate.now()).getTotal();
+    }
+    
+    /**
+     * 🆕 누적 통계가 전체 기록 기준인지 (false면 백그라운드 로드 중이고 스냅샷도 없어 최근 메시지만 반영된 값)
+     */
+    public synchronized boolean isStatsComplete() {
+        return statsFromRollups || isFullyLoaded();
+    }
+    
+    private EmotionAggregates.Counts globalStats() {
+        return statsFromRollups ? EmotionAggregates.Counts.of(rollups.getTotal(null)) : aggregates.getGlobal();
+    }
+    
+    // 쓰기 스레드에서 호출: 모인 메시지를 한 번에 쓰고 필요하면 fsync 한 번
+    // 🔧 중복 인덱스에는 저장에 성공한 뒤에만 기록 (실패하면 예약을 풀어서 다시 가져올 수 있게)
+    private void writeBatch(List<PendingWrite> batch, boolean sync) throws IOException {
+        List<Message> messages = new ArrayList<>(batch.size());
+        for (PendingWrite write : batch) {
+            messages.add(write.message);
+        }
+        
+        try {
+            if (store == null) {
+                throw new IOException("저장소가 열려 있지 않습니다.");
+            }
+            store.append(messages);
+        } catch (IOException | RuntimeException e) {
+            if (dedupIndex != null) {
+                for (PendingWrite write : batch) {
+                    dedupIndex.release(write.fingerprints);
+                }
+            }
+            throw e;
+        }
+        
+        if (dedupIndex != null) {
+            for (PendingWrite write : batch) {
+                dedupIndex.commit(write.fingerprints);
+            }
+        }
+        if (sync) {
+            store.force();
+            if (dedupIndex != null) {
+                dedupIndex.force();
+            }
+        }
+        
+        // 🆕 집계 스냅샷은 매번이 아니라 일정 간격으로만
+        long now = System.currentTimeMillis();
+        if (now - lastRollupSnapshot >= ROLLUP_SNAPSHOT_INTERVAL_MS) {
+            lastRollupSnapshot = now;
+            rollups.save(ROLLUP_FILE);
+        }
+    }
+    
+    private void loadData() {
+        try {
+            boolean needsMigration = !MessageStore.exists() && hasLegacyTextData();
+            store = new MessageStore();
+            dedupIndex = new DedupIndex();
+            
+            if (needsMigration) {
+                migrateLegacyText();
+                markLoaded();
+                return;
+            }
+            
+            // 🆕 최근 메시지만 먼저 읽어서 화면을 바로 띄우고, 이전 기록은 백그라운드에서
+            List<Message> firstPage = new ArrayList<>();
+            MessageStore.Position olderEnd = store.readTail(FIRST_PAGE_SIZE, firstPage);
+            firstPage.forEach(this::addToHistory);
             
-            for (Emotion emotion : Emotion.values()) {
-                emotionCount.put(emotion, 0);
+            if (!olderEnd.isStart()) {
+                // 🆕 전체 로드 전까지는 저장된 집계 스냅샷으로 기간별 조회 (최근 메시지도 이미 포함)
+                EmotionRollups snapshot = EmotionRollups.load(ROLLUP_FILE);
+                if (snapshot != null) {
+                    synchronized (this) {
+                        rollups = snapshot;
+                        statsFromRollups = true;
+                    }
+                }
+                System.out.println("✅ 최근 " + firstPage.size() + "개의 메시지를 먼저 불러왔습니다. (이전 기록은 백그라운드 로드)");
+                startBackgroundLoad(olderEnd);
+                return;
             }
             
-            List<Message> dailyMessages = getMessagesByDate(date);
-            for (Message msg : dailyMessages) {
-                emotionCount.put(msg.getEmotion(), 
-                    emotionCount.get(msg.getEmotion()) + 1);
+            if (firstPage.isEmpty()) {
+                System.out.println("📄 저장된 메시지가 없습니다. 새로 시작합니다.");
+            } else {
+                System.out.println("✅ " + messageHistory.size() + "개의 메시지를 불러왔습니다.");
             }
             
-            stats.put(date, emotionCount);
+        } catch (IOException e) {
+            System.err.println("❌ 데이터 로드 실패: " + e.getMessage());
+            e.printStackTrace();
         }
-        
-        return stats;
+        markLoaded();
     }
     
-    public Map<Emotion, Integer> getEmotionDistribution() {
-        Map<Emotion, Integer> distribution = new HashMap<>();
+    /**
+     * 🆕 olderEnd 이전의 기록을 백그라운드에서 읽고
+     * 인덱스/통계도 그 스레드에서 만든 뒤, 잠금 안에서는 최근 부분만 이어 붙여 교체
+     */
+    private void startBackgroundLoad(MessageStore.Position olderEnd) {
+        Thread loader = new Thread(() -> {
+            try {
+                MessageHistory older = new MessageHistory();
+                MessageIndex olderIndex = new MessageIndex();
+                EmotionAggregates olderAggregates = new EmotionAggregates();
+                EmotionRollups olderRollups = new EmotionRollups();
+                
+                store.readBefore(olderEnd, msg -> {
+                    olderIndex.add(older.size(), msg);
+                    olderAggregates.add(msg);
+                    olderRollups.add(msg);
+                    older.add(msg);
+                });
+                
+                EmotionRollups previousRollups;
+                synchronized (this) {
+                    for (int i = 0; i < messageHistory.size(); i++) {
+                        Message msg = messageHistory.get(i);
+                        olderIndex.add(older.size(), msg);
+                        olderAggregates.add(msg);
+                        olderRollups.add(msg);
+                        older.add(msg);
+                    }
+                    messageHistory = older;
+                    index = olderIndex;
+                    aggregates = olderAggregates;
+                    previousRollups = rollups;
+                    rollups = olderRollups;
+                    statsFromRollups = false;
+                }
+                
+                // 🆕 스냅샷이 없거나 실제 기록과 맞지 않으면 (비정상 종료, 압축 등) 다시 저장
+                if (previousRollups.getMessageCount() != olderRollups.getMessageCount()) {
+                    olderRollups.save(ROLLUP_FILE);
+                }
+                
+                System.out.println("✅ 전체 기록 로드 완료 (메시지 " + older.size() + "개)");
+                
+            } catch (Exception e) {
+                System.err.println("❌ 이전 기록 로드 실패: " + e.getMessage());
+                e.printStackTrace();
+            } finally {
+                markLoaded();
+                notifyLoadListeners();
+            }
+        }, "history-loader");
         
-        for (Emotion emotion : Emotion.values()) {
-            distribution.put(emotion, 0);
+        loader.setDaemon(true);
+        loader.start();
+    }
+    
+    private void markLoaded() {
+        seedDedupIndex();
+        historyLoaded.countDown();
+        // 🆕 세그먼트 압축은 전체 기록을 다 읽은 뒤에만 (읽는 도중 세그먼트가 교체되지 않도록)
+        if (store != null) {
+            store.enableCompaction();
         }
-        
-        for (Message msg : messageHistory) {
-            Emotion emotion = msg.getEmotion();
-            distribution.put(emotion, distribution.get(emotion) + 1);
+    }
+    
+    // 🆕 중복 인덱스를 처음 만든 경우 기존 기록의 지문으로 한 번 채움
+    private void seedDedupIndex() {
+        if (dedupIndex == null || !dedupIndex.isCreated()) {
+            return;
         }
         
-        return distribution;
+        long[] fingerprints;
+        synchronized (this) {
+            fingerprints = new long[messageHistory.size()];
+            for (int i = 0; i < fingerprints.length; i++) {
+                fingerprints[i] = DedupIndex.fingerprint(MessageStore.fromEpochMillis(messageHistory.getTimestampMillis(i)),
+                    messageHistory.getContactName(i), messageHistory.getContent(i));
+            }
+        }
+        dedupIndex.addAll(fingerprints);
+        System.out.println("🔑 기존 메시지 " + dedupIndex.size() + "개로 중복 인덱스를 만들었습니다.");
     }
     
-    public Emotion getMostFrequentEmotion() {
-        Map<Emotion, Integer> distribution = getEmotionDistribution();
-        
-        return distribution.entrySet().stream()
-            .max(Map.Entry.comparingByValue())
-            .map(Map.Entry::getKey)
-            .orElse(Emotion.NEUTRAL);
+    public boolean isFullyLoaded() {
+        return historyLoaded.getCount() == 0;
     }
     
-    public double getAverageIntensity() {
-        if (messageHistory.isEmpty()) {
-            return 0.0;
+    /**
+     * 🆕 이전 기록 로드가 끝나면 호출될 리스너 (이미 끝났으면 호출되지 않음)
+     * 로딩 스레드에서 호출되므로 UI 갱신은 Platform.runLater로 감싸야 함
+     */
+    public void addLoadListener(Runnable listener) {
+        synchronized (loadListeners) {
+            if (!isFullyLoaded()) {
+                loadListeners.add(listener);
+            }
         }
-        
-        double sum = messageHistory.stream()
-            .mapToDouble(Message::getIntensity)
-            .sum();
-        
-        return sum / messageHistory.size();
     }
     
-    public int getTotalMessageCount() {
-        return messageHistory.size();
+    private void notifyLoadListeners() {
+        List<Runnable> listeners;
+        synchronized (loadListeners) {
+            listeners = new ArrayList<>(loadListeners);
+            loadListeners.clear();
+        }
+        listeners.forEach(Runnable::run);
+    }
+    
+    // 전체 기록이 필요한 작업(내보내기, 삭제)은 로드가 끝날 때까지 대기
+    private void awaitFullLoad() {
+        try {
+            historyLoaded.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
     
-    public int getTodayMessageCount() {
-        return getMessagesByDate(LocalDate.now()).size();
+    // 🆕 텍스트 형식 내보내기
+    public int exportToText(File file) throws IOException {
+        awaitFullLoad();
+        return writeText(file);
     }
     
-    private void saveData() {
+    private synchronized int writeText(File file) throws IOException {
         try (PrintWriter writer = new PrintWriter(
-            new OutputStreamWriter(new FileOutputStream(DATA_FILE), "UTF-8"))) {
+            new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
             
-            for (Message msg : messageHistory) {
-                writer.println(messageToString(msg));
+            for (int i = 0; i < messageHistory.size(); i++) {
+                writer.println(messageToString(messageHistory.get(i)));
             }
-            
-        } catch (IOException e) {
-            System.err.println("❌ 데이터 저장 실패: " + e.getMessage());
-            e.printStackTrace();
         }
+        
+        System.out.println("📤 " + messageHistory.size() + "개의 메시지를 내보냈습니다: " + file.getName());
+        return messageHistory.size();
     }
     
-    private void loadData() {
+    // 🆕 텍스트 형식 가져오기 (기존 기록 뒤에 추가)
+    public synchronized int importFromText(File file) throws IOException {
+        List<Message> imported = new ArrayList<>();
+        readLines(file, imported);
+        
+        int added = 0;
+        for (Message msg : imported) {
+            // 🆕 이미 있는 메시지는 건너뜀 (겹치는 파일을 다시 가져와도 중복 저장되지 않도록)
+            if (submitIfNew(msg)) {
+                added++;
+            }
+        }
+        
+        System.out.println("📥 " + added + "개의 메시지를 가져왔습니다: " + file.getName()
+            + (added < imported.size() ? " (중복 " + (imported.size() - added) + "개 제외)" : ""));
+        return added;
+    }
+    
+    private boolean hasLegacyTextData() {
+        return new File(DATA_FILE).exists() || new File(JOURNAL_FILE).exists()
+            || new File(COMPACTING_FILE).exists();
+    }
+    
+    /**
+     * 🆕 emotion_data.txt (+ 저널) → 이진 저장소로 1회 이전
+     * 이전이 끝난 텍스트 파일은 *.migrated 로 이름을 바꿔 보관
+     */
+    private void migrateLegacyText() throws IOException {
+        System.out.println("🔄 텍스트 데이터를 이진 저장소로 옮기는 중...");
+        
         File file = new File(DATA_FILE);
+        File compacting = new File(COMPACTING_FILE);
+        File journal = new File(JOURNAL_FILE);
+        
+        List<Message> legacy = new ArrayList<>();
+        String lastSnapshotLine = readLines(file, legacy);
+        
+        // 압축 도중 종료된 경우: 스냅샷 교체가 끝났다면 마지막 줄이 같으므로 건너뜀
+        if (compacting.exists()) {
+            List<Message> pending = new ArrayList<>();
+            String lastPendingLine = readLines(compacting, pending);
+            if (lastPendingLine != null && !lastPendingLine.equals(lastSnapshotLine)) {
+                legacy.addAll(pending);
+            }
+        }
+        readLines(journal, legacy);
+        
+        store.append(legacy);
+        store.force();
+        legacy.forEach(this::addToHistory);
+        
+        for (File legacyFile : new File[] { file, compacting, journal }) {
+            if (legacyFile.exists()) {
+                Files.move(legacyFile.toPath(), Paths.get(legacyFile.getPath() + MIGRATED_SUFFIX),
+                    StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
         
+        System.out.println("✅ " + legacy.size() + "개의 메시지를 이진 저장소로 옮겼습니다.");
+    }
+    
+    // 파일의 각 줄을 메시지로 읽어 target에 추가하고, 마지막 줄을 반환
+    private String readLines(File file, List<Message> target) throws IOException {
         if (!file.exists()) {
-            System.out.println("📄 데이터 파일이 없습니다. 새로 시작합니다.");
-            return;
+            return null;
         }
         
+        String lastLine = null;
         try (BufferedReader reader = new BufferedReader(
-            new InputStreamReader(new FileInputStream(file), "UTF-8"))) {
+            new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
             
             String line;
-            int loadCount = 0;
-            
             while ((line = reader.readLine()) != null) {
                 Message msg = stringToMessage(line);
                 if (msg != null) {
-                    messageHistory.add(msg);
-                    loadCount++;
+                    target.add(msg);
+                    lastLine = line;
                 }
             }
-            
-            System.out.println("✅ " + loadCount + "개의 메시지를 불러왔습니다.");
-            
-        } catch (IOException e) {
-            System.err.println("❌ 데이터 로드 실패: " + e.getMessage());
-            e.printStackTrace();
         }
+        return lastLine;
     }
     
     // 🆕 contactName 포함하여 저장
@@ -256,8 +633,28 @@ public class DataManager {
     }
     
     public void clearAllData() {
+        awaitFullLoad(); // 백그라운드 로더가 읽는 중에 파일을 잘라내지 않도록
+        clearHistory();
+    }
+    
+    private synchronized void clearHistory() {
         messageHistory.clear();
-        saveData();
+        index.clear();
+        aggregates.clear();
+        rollups.clear();
+        try {
+            writer.flush(); // 대기 중인 저장이 삭제 뒤에 쓰이지 않도록
+            if (store != null) {
+                store.clear();
+            }
+            Files.deleteIfExists(ROLLUP_FILE);
+            if (dedupIndex != null) {
+                dedupIndex.clear();
+            }
+        } catch (IOException e) {
+            System.err.println("❌ 데이터 삭제 실패: " + e.getMessage());
+            e.printStackTrace();
+        }
         System.out.println("🗑️ 모든 데이터가 삭제되었습니다.");
     }
 }
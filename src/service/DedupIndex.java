@@ -0,0 +1,384 @@
+package service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 가져오기 중복 방지 인덱스 (data/messages/dedup.idx)
+ * (시각, 상대방, 내용)의 64비트 지문을 디스크의 해시 집합(선형 탐사)에 저장하고,
+ * 메모리의 Bloom 필터를 앞에 두어 처음 보는 메시지는 파일을 읽지 않고 바로 판정
+ *
+ * 파일 구조: [MAGIC][용량][개수][예약] + 용량 × 8바이트 슬롯 (0 = 빈 슬롯)
+ * 절반 이상 차면 두 배 크기로 임시 파일에 다시 쓰고 교체
+ *
+ * 🔧 파일 쓰기는 메시지가 저장소에 기록된 뒤 쓰기 스레드에서만 (reserve → commit / release)
+ * - 호출 스레드(JavaFX 스레드 등)는 메모리의 예약 집합 + Bloom 필터만 확인하고 예약
+ *   (Bloom 필터가 "있을 수도 있음"이라고 할 때만 슬롯을 읽음 - 새 메시지는 0.1% 미만)
+ * - 메시지 저장이 실패하면 예약을 풀어서, 다음 가져오기 때 다시 저장되도록
+ * - 인덱스 파일 쓰기가 실패하면 이번 실행 동안은 메모리 집합으로 중복을 막음
+ */
+public class DedupIndex {
+    private static final Path INDEX_FILE = Paths.get("data/messages/dedup.idx");
+    private static final int MAGIC = 0x454D4431; // "EMD1"
+    private static final int HEADER_BYTES = 16;
+    private static final int SIZE_OFFSET = 8;
+    private static final int INITIAL_CAPACITY = 4096;
+    // Bloom 필터: 슬롯당 8비트 (최대 절반이 차므로 지문당 16비트 이상), 해시 7개 → 오탐률 0.1% 미만
+    private static final int BLOOM_BITS_PER_SLOT = 8;
+    private static final int BLOOM_HASHES = 7;
+
+    private final Path path;
+    private FileChannel channel;
+    private int capacity;
+    private int size;
+    private long[] bloom;
+    private boolean created; // 이번에 새로 만든 파일인지 (기존 기록으로 채워야 함)
+    private final ByteBuffer slot = ByteBuffer.allocate(8);
+    private final Set<Long> pending = new HashSet<>(); // 🆕 예약됨 (아직 파일에 없음)
+    private final Set<Long> memoryOnly = new HashSet<>(); // 🆕 파일에 쓰지 못한 지문
+    private boolean degraded = false;
+
+    public DedupIndex() throws IOException {
+        this(INDEX_FILE);
+    }
+
+    public DedupIndex(Path path) throws IOException {
+        this.path = path;
+        this.created = !Files.exists(path);
+        open();
+    }
+
+    /**
+     * 메시지 지문 (0은 빈 슬롯 표시라 쓰지 않음)
+     * @param timestamp 원래 메시지 시각 (알 수 없으면 null → 상대방 + 내용만)
+     */
+    public static long fingerprint(LocalDateTime timestamp, String contactName, String content) {
+        long hash = 0xcbf29ce484222325L;
+        long millis = timestamp == null ? Long.MIN_VALUE : MessageStore.toEpochMillis(timestamp);
+        for (int i = 0; i < 8; i++) {
+            hash = (hash ^ ((millis >>> (i * 8)) & 0xFF)) * 0x100000001b3L;
+        }
+        hash = mix(hash, contactName);
+        hash = (hash ^ 0x1F) * 0x100000001b3L; // 구분자 (상대 "ab" + 내용 "c" ≠ 상대 "a" + 내용 "bc")
+        hash = mix(hash, content);
+        return finish(hash);
+    }
+
+    // FNV-1a로 문자열(UTF-8) 섞기 (null이면 그대로)
+    static long mix(long hash, String s) {
+        if (s == null) {
+            return hash;
+        }
+        for (byte b : s.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // 하위 비트도 고르게 섞기 (슬롯 위치와 Bloom 해시에 그대로 사용), 0은 쓰지 않음
+    static long finish(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+
+    public synchronized boolean contains(long fingerprint) {
+        if (pending.contains(fingerprint) || memoryOnly.contains(fingerprint)) {
+            return true;
+        }
+        if (!mightContain(fingerprint)) {
+            return false;
+        }
+        try {
+            return readSlot(findSlot(fingerprint)) == fingerprint;
+        } catch (IOException e) {
+            markDegraded("읽기", e);
+            return false;
+        }
+    }
+
+    /**
+     * 🆕 저장할 메시지의 지문 예약 (파일에는 쓰지 않음)
+     * @return 처음 보는 지문이면 true (이미 있거나 예약됨 → false)
+     */
+    public synchronized boolean reserve(long fingerprint) {
+        if (contains(fingerprint)) {
+            return false;
+        }
+        pending.add(fingerprint);
+        return true;
+    }
+
+    /**
+     * 🆕 메시지가 저장소에 기록된 뒤 예약한 지문을 파일에 추가 (쓰기 스레드에서 호출)
+     */
+    public synchronized void commit(long[] fingerprints) {
+        for (long fingerprint : fingerprints) {
+            pending.remove(fingerprint);
+            if (memoryOnly.contains(fingerprint)) {
+                continue;
+            }
+            try {
+                if (mightContain(fingerprint) && readSlot(findSlot(fingerprint)) == fingerprint) {
+                    continue;
+                }
+                if ((size + 1) * 2L > capacity) {
+                    resize(capacity * 2);
+                }
+                insert(fingerprint);
+            } catch (IOException e) {
+                markDegraded("저장", e);
+                memoryOnly.add(fingerprint);
+            }
+        }
+    }
+
+    // 🆕 메시지 저장이 실패했을 때 예약 취소 (다음에 다시 가져오면 저장되도록)
+    public synchronized void release(long[] fingerprints) {
+        for (long fingerprint : fingerprints) {
+            pending.remove(fingerprint);
+        }
+    }
+
+    // 🆕 인덱스 파일을 읽거나 쓰지 못한 적이 있는지 (이번 실행의 중복 확인은 메모리 집합으로 계속)
+    public synchronized boolean isDegraded() {
+        return degraded;
+    }
+
+    /**
+     * 여러 지문을 한 번에 추가 (기존 기록으로 채울 때): 슬롯마다 쓰지 않고 표 전체를 새로 써서 교체
+     * 🔧 파일에 쓰지 못하면 이번 실행 동안은 메모리 집합으로
+     */
+    public synchronized void addAll(long[] fingerprints) {
+        try {
+            replaceWith(fingerprints);
+        } catch (IOException e) {
+            markDegraded("저장", e);
+            for (long fingerprint : fingerprints) {
+                memoryOnly.add(fingerprint);
+            }
+        }
+    }
+
+    private void replaceWith(long[] fingerprints) throws IOException {
+        long[] existing = readAll();
+        long[] merged = Arrays.copyOf(existing, existing.length + fingerprints.length);
+        System.arraycopy(fingerprints, 0, merged, existing.length, fingerprints.length);
+        Arrays.sort(merged);
+        int count = 0;
+        for (int i = 0; i < merged.length; i++) {
+            if (merged[i] != 0 && (count == 0 || merged[i] != merged[count - 1])) {
+                merged[count++] = merged[i];
+            }
+        }
+
+        int newCapacity = capacity;
+        while (count * 2L > newCapacity) {
+            newCapacity *= 2;
+        }
+        replaceTable(Arrays.copyOf(merged, count), newCapacity);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // 파일이 없어서 새로 만들었으면 true (기존 메시지 기록으로 한 번 채워야 함)
+    public synchronized boolean isCreated() {
+        return created;
+    }
+
+    public synchronized void force() throws IOException {
+        channel.force(false);
+    }
+
+    public synchronized void clear() throws IOException {
+        pending.clear();
+        memoryOnly.clear();
+        degraded = false;
+        channel.close();
+        writeTable(path, new long[0], INITIAL_CAPACITY);
+        open();
+    }
+
+    private void markDegraded(String action, IOException e) {
+        if (!degraded) {
+            System.err.println("❌ 중복 인덱스 " + action + " 실패 (이번 실행 동안은 메모리로 중복 확인): " + e.getMessage());
+        }
+        degraded = true;
+    }
+
+    // ========== 디스크 해시 집합 ==========
+
+    private void open() throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        if (!Files.exists(path)) {
+            writeTable(path, new long[0], INITIAL_CAPACITY);
+        }
+
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            channel.close();
+            System.err.println("⚠️ 중복 인덱스 파일이 손상되어 새로 만듭니다.");
+            Files.delete(path);
+            created = true;
+            open();
+            return;
+        }
+        capacity = header.getInt();
+        size = header.getInt();
+
+        // 슬롯 전체를 한 번 읽어서 Bloom 필터 구성
+        bloom = new long[Math.max(1, capacity * BLOOM_BITS_PER_SLOT / 64)];
+        ByteBuffer slots = ByteBuffer.allocate(capacity * 8);
+        readFully(slots, HEADER_BYTES);
+        slots.flip();
+        while (slots.hasRemaining()) {
+            long fingerprint = slots.getLong();
+            if (fingerprint != 0) {
+                addToBloom(fingerprint);
+            }
+        }
+    }
+
+    // 지문이 있는 슬롯, 없으면 들어갈 빈 슬롯
+    private int findSlot(long fingerprint) throws IOException {
+        int mask = capacity - 1;
+        int i = (int) fingerprint & mask;
+        while (true) {
+            long value = readSlot(i);
+            if (value == 0 || value == fingerprint) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    private void insert(long fingerprint) throws IOException {
+        writeSlot(findSlot(fingerprint), fingerprint);
+        addToBloom(fingerprint);
+        size++;
+
+        ByteBuffer sizeBuffer = ByteBuffer.allocate(4).putInt(size);
+        sizeBuffer.flip();
+        channel.write(sizeBuffer, SIZE_OFFSET);
+    }
+
+    private void resize(int newCapacity) throws IOException {
+        replaceTable(readAll(), newCapacity);
+    }
+
+    // 사용 중인 슬롯의 지문 전체
+    private long[] readAll() throws IOException {
+        ByteBuffer slots = ByteBuffer.allocate(capacity * 8);
+        readFully(slots, HEADER_BYTES);
+        slots.flip();
+        long[] fingerprints = new long[capacity];
+        int count = 0;
+        while (slots.hasRemaining()) {
+            long fingerprint = slots.getLong();
+            if (fingerprint != 0) {
+                fingerprints[count++] = fingerprint;
+            }
+        }
+        return Arrays.copyOf(fingerprints, count);
+    }
+
+    // 임시 파일에 새 표를 쓰고 교체한 뒤 다시 열기
+    private void replaceTable(long[] fingerprints, int newCapacity) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        writeTable(tmp, fingerprints, newCapacity);
+        channel.close();
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        open();
+    }
+
+    // 지문들을 새 용량의 표로 파일에 기록 (fsync 포함)
+    private static void writeTable(Path target, long[] fingerprints, int capacity) throws IOException {
+        long[] table = new long[capacity];
+        int mask = capacity - 1;
+        for (long fingerprint : fingerprints) {
+            int i = (int) fingerprint & mask;
+            while (table[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            table[i] = fingerprint;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + capacity * 8);
+        buffer.putInt(MAGIC).putInt(capacity).putInt(fingerprints.length).putInt(0);
+        for (long value : table) {
+            buffer.putLong(value);
+        }
+        buffer.flip();
+
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+    }
+
+    private long readSlot(int i) throws IOException {
+        slot.clear();
+        readFully(slot, HEADER_BYTES + i * 8L);
+        return slot.getLong(0);
+    }
+
+    private void writeSlot(int i, long value) throws IOException {
+        slot.clear();
+        slot.putLong(value).flip();
+        while (slot.hasRemaining()) {
+            channel.write(slot, HEADER_BYTES + i * 8L + slot.position());
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("중복 인덱스 파일이 잘렸습니다.");
+            }
+        }
+    }
+
+    // ========== Bloom 필터 ==========
+
+    // 지문의 위/아래 32비트로 이중 해싱
+    private void addToBloom(long fingerprint) {
+        long bits = (long) bloom.length * 64;
+        int h1 = (int) fingerprint;
+        int h2 = (int) (fingerprint >>> 32);
+        for (int k = 0; k < BLOOM_HASHES; k++) {
+            long bit = Math.floorMod(h1 + (long) k * h2, bits);
+            bloom[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    private boolean mightContain(long fingerprint) {
+        long bits = (long) bloom.length * 64;
+        int h1 = (int) fingerprint;
+        int h2 = (int) (fingerprint >>> 32);
+        for (int k = 0; k < BLOOM_HASHES; k++) {
+            long bit = Math.floorMod(h1 + (long) k * h2, bits);
+            if ((bloom[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,117 @@
+package service;
+
+import model.Emotion;
+import model.Message;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * 감정 통계 누적 카운터
+ * 메시지가 추가될 때마다 전체 / 상대방별 / 날짜별 감정 수와 강도 합계를 O(1)로 갱신
+ */
+public class EmotionAggregates {
+
+    // 감정별 개수 + 강도 합계
+    public static class Counts {
+        private final int[] emotionCounts = new int[Emotion.values().length];
+        private int total = 0;
+        private double intensitySum = 0.0;
+
+        void add(Emotion emotion, double intensity) {
+            emotionCounts[emotion.ordinal()]++;
+            total++;
+            intensitySum += intensity;
+        }
+
+        void reset() {
+            Arrays.fill(emotionCounts, 0);
+            total = 0;
+            intensitySum = 0.0;
+        }
+
+        // 🆕 기간별 집계의 합계로 만들기 (전체 기록을 읽기 전에 스냅샷으로 통계를 보여줄 때)
+        static Counts of(EmotionRollups.Bucket bucket) {
+            Counts counts = new Counts();
+            for (Emotion emotion : Emotion.values()) {
+                counts.emotionCounts[emotion.ordinal()] = bucket.getCount(emotion);
+                counts.total += bucket.getCount(emotion);
+                counts.intensitySum += bucket.getIntensitySum(emotion);
+            }
+            return counts;
+        }
+
+        Counts copy() {
+            Counts copy = new Counts();
+            System.arraycopy(emotionCounts, 0, copy.emotionCounts, 0, emotionCounts.length);
+            copy.total = total;
+            copy.intensitySum = intensitySum;
+            return copy;
+        }
+
+        public int getTotal() { return total; }
+        public int getCount(Emotion emotion) { return emotionCounts[emotion.ordinal()]; }
+        public double getIntensitySum() { return intensitySum; }
+
+        public double getAverageIntensity() {
+            return total > 0 ? intensitySum / total : 0.0;
+        }
+
+        public Emotion getMostFrequent() {
+            Emotion most = Emotion.NEUTRAL;
+            int max = 0;
+            for (Emotion emotion : Emotion.values()) {
+                if (emotionCounts[emotion.ordinal()] > max) {
+                    max = emotionCounts[emotion.ordinal()];
+                    most = emotion;
+                }
+            }
+            return most;
+        }
+
+        public Map<Emotion, Integer> toMap() {
+            Map<Emotion, Integer> map = new HashMap<>();
+            for (Emotion emotion : Emotion.values()) {
+                map.put(emotion, emotionCounts[emotion.ordinal()]);
+            }
+            return map;
+        }
+    }
+
+    private static final Counts EMPTY = new Counts();
+
+    private final Counts global = new Counts();
+    private final Map<String, Counts> byContact = new HashMap<>();
+    private final Map<LocalDate, Counts> byDay = new HashMap<>();
+
+    public void add(Message msg) {
+        Emotion emotion = msg.getEmotion();
+        double intensity = msg.getIntensity();
+
+        global.add(emotion, intensity);
+        byContact.computeIfAbsent(msg.getContactName(), k -> new Counts()).add(emotion, intensity);
+        byDay.computeIfAbsent(msg.getTimestamp().toLocalDate(), k -> new Counts()).add(emotion, intensity);
+    }
+
+    public Counts getGlobal() {
+        return global;
+    }
+
+    public Counts getContact(String contactName) {
+        return byContact.getOrDefault(contactName, EMPTY);
+    }
+
+    public Counts getDay(LocalDate date) {
+        return byDay.getOrDefault(date, EMPTY);
+    }
+
+    public Set<String> getContactNames() {
+        return byContact.keySet();
+    }
+
+    public void clear() {
+        global.reset();
+        byContact.clear();
+        byDay.clear();
+    }
+}
@@ -0,0 +1,275 @@
+package service;
+
+import model.Emotion;
+import model.Message;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 시간 단위 감정 집계 (rollup)
+ * 시간 / 일 / 주 / 월 구간마다, 상대방별 + 전체로 감정별 개수, 강도 합계, 최대 강도를 저장
+ * 메시지가 추가될 때 갱신되므로 "상대 X의 3년간 월별 분포" 같은 조회는 메시지 대신 구간 수백 개만 읽음
+ *
+ * data/messages/rollups.bin 에 스냅샷으로 저장해서 시작 직후(전체 기록 로드 전)에도 조회 가능
+ * 여러 스레드(UI, 쓰기 스레드, 로딩 스레드)에서 접근하므로 모든 메서드는 이 객체로 동기화
+ */
+public class EmotionRollups {
+
+    public enum Granularity {
+        HOUR, DAY, WEEK, MONTH
+    }
+
+    private static final int MAGIC = 0x454D5231; // "EMR1"
+    private static final int VERSION = 1;
+    private static final long HOUR_MILLIS = 3_600_000L;
+    private static final long DAY_MILLIS = 24 * HOUR_MILLIS;
+    private static final Granularity[] GRANULARITIES = Granularity.values();
+    private static final int EMOTION_COUNT = Emotion.values().length;
+
+    // 한 구간의 감정별 개수 / 강도 합계 / 최대 강도
+    public static class Bucket {
+        private final int[] counts = new int[EMOTION_COUNT];
+        private final double[] intensitySums = new double[EMOTION_COUNT];
+        private final float[] maxIntensities = new float[EMOTION_COUNT];
+
+        void add(int emotion, float intensity) {
+            counts[emotion]++;
+            intensitySums[emotion] += intensity;
+            if (intensity > maxIntensities[emotion]) {
+                maxIntensities[emotion] = intensity;
+            }
+        }
+
+        void merge(Bucket other) {
+            for (int e = 0; e < EMOTION_COUNT; e++) {
+                counts[e] += other.counts[e];
+                intensitySums[e] += other.intensitySums[e];
+                maxIntensities[e] = Math.max(maxIntensities[e], other.maxIntensities[e]);
+            }
+        }
+
+        Bucket copy() {
+            Bucket copy = new Bucket();
+            System.arraycopy(counts, 0, copy.counts, 0, EMOTION_COUNT);
+            System.arraycopy(intensitySums, 0, copy.intensitySums, 0, EMOTION_COUNT);
+            System.arraycopy(maxIntensities, 0, copy.maxIntensities, 0, EMOTION_COUNT);
+            return copy;
+        }
+
+        public int getCount(Emotion emotion) { return counts[emotion.ordinal()]; }
+        public double getIntensitySum(Emotion emotion) { return intensitySums[emotion.ordinal()]; }
+        public double getMaxIntensity(Emotion emotion) { return Math.round(maxIntensities[emotion.ordinal()] * 1000) / 1000.0; }
+
+        public int getTotal() {
+            int total = 0;
+            for (int count : counts) {
+                total += count;
+            }
+            return total;
+        }
+
+        public Map<Emotion, Integer> toMap() {
+            Map<Emotion, Integer> map = new HashMap<>();
+            for (Emotion emotion : Emotion.values()) {
+                map.put(emotion, counts[emotion.ordinal()]);
+            }
+            return map;
+        }
+    }
+
+    // 단위별: 구간 키 → 구간 (전체 / 상대방별)
+    private final List<TreeMap<Long, Bucket>> global = new ArrayList<>(GRANULARITIES.length);
+    private final List<Map<String, TreeMap<Long, Bucket>>> byContact = new ArrayList<>(GRANULARITIES.length);
+    private int messageCount = 0; // 집계에 반영된 메시지 수 (스냅샷 검증용)
+
+    public EmotionRollups() {
+        for (int g = 0; g < GRANULARITIES.length; g++) {
+            global.add(new TreeMap<>());
+            byContact.add(new HashMap<>());
+        }
+    }
+
+    public synchronized void add(Message msg) {
+        long epochMillis = MessageStore.toEpochMillis(msg.getTimestamp());
+        int emotion = msg.getEmotion().ordinal();
+        float intensity = (float) msg.getIntensity();
+
+        for (Granularity granularity : GRANULARITIES) {
+            int g = granularity.ordinal();
+            long key = bucketKey(granularity, epochMillis);
+            global.get(g).computeIfAbsent(key, k -> new Bucket()).add(emotion, intensity);
+            byContact.get(g).computeIfAbsent(msg.getContactName(), k -> new TreeMap<>())
+                .computeIfAbsent(key, k -> new Bucket()).add(emotion, intensity);
+        }
+        messageCount++;
+    }
+
+    /**
+     * [from, to) 기간에 걸친 구간들 (구간 시작 시각 순서, 복사본)
+     * @param contactName null이면 전체 상대
+     */
+    public synchronized SortedMap<LocalDateTime, Bucket> query(String contactName, Granularity granularity,
+                                                               LocalDateTime from, LocalDateTime to) {
+        int g = granularity.ordinal();
+        TreeMap<Long, Bucket> buckets = contactName == null ? global.get(g) : byContact.get(g).get(contactName);
+
+        SortedMap<LocalDateTime, Bucket> result = new TreeMap<>();
+        if (buckets == null || !from.isBefore(to)) {
+            return result;
+        }
+
+        long fromKey = bucketKey(granularity, MessageStore.toEpochMillis(from));
+        long toKey = bucketKey(granularity, MessageStore.toEpochMillis(to.minusNanos(1)));
+        for (Map.Entry<Long, Bucket> entry : buckets.subMap(fromKey, true, toKey, true).entrySet()) {
+            result.put(bucketStart(granularity, entry.getKey()), entry.getValue().copy());
+        }
+        return result;
+    }
+
+    public synchronized int getMessageCount() {
+        return messageCount;
+    }
+
+    /**
+     * 🆕 전체 기간 합계 (월 구간을 더함)
+     * @param contactName null이면 전체 상대
+     */
+    public synchronized Bucket getTotal(String contactName) {
+        Bucket total = new Bucket();
+        int g = Granularity.MONTH.ordinal();
+        TreeMap<Long, Bucket> buckets = contactName == null ? global.get(g) : byContact.get(g).get(contactName);
+        if (buckets != null) {
+            for (Bucket bucket : buckets.values()) {
+                total.merge(bucket);
+            }
+        }
+        return total;
+    }
+
+    // 🆕 집계된 상대 이름들
+    public synchronized Set<String> getContactNames() {
+        return new HashSet<>(byContact.get(Granularity.MONTH.ordinal()).keySet());
+    }
+
+    public synchronized void clear() {
+        for (int g = 0; g < GRANULARITIES.length; g++) {
+            global.get(g).clear();
+            byContact.get(g).clear();
+        }
+        messageCount = 0;
+    }
+
+    // ========== 구간 키 ==========
+
+    // 시간: epoch 시간 수 / 일: epoch 일 수 / 주: 월요일 기준 주 번호 / 월: 연*12 + 월
+    private static long bucketKey(Granularity granularity, long epochMillis) {
+        long epochDay = Math.floorDiv(epochMillis, DAY_MILLIS);
+        switch (granularity) {
+            case HOUR: return Math.floorDiv(epochMillis, HOUR_MILLIS);
+            case DAY: return epochDay;
+            case WEEK: return Math.floorDiv(epochDay + 3, 7); // 1970-01-01은 목요일
+            default:
+                LocalDate date = LocalDate.ofEpochDay(epochDay);
+                return date.getYear() * 12L + date.getMonthValue() - 1;
+        }
+    }
+
+    private static LocalDateTime bucketStart(Granularity granularity, long key) {
+        switch (granularity) {
+            case HOUR: return MessageStore.fromEpochMillis(key * HOUR_MILLIS);
+            case DAY: return LocalDate.ofEpochDay(key).atStartOfDay();
+            case WEEK: return LocalDate.ofEpochDay(key * 7 - 3).atStartOfDay();
+            default: return LocalDate.of((int) Math.floorDiv(key, 12), Math.floorMod(key, 12) + 1, 1).atStartOfDay();
+        }
+    }
+
+    // ========== 스냅샷 저장 ==========
+
+    /**
+     * 현재 집계를 임시 파일에 쓰고 원자적으로 교체
+     */
+    public synchronized void save(Path path) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(tmp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(messageCount);
+
+            for (int g = 0; g < GRANULARITIES.length; g++) {
+                writeBuckets(out, global.get(g));
+                out.writeInt(byContact.get(g).size());
+                for (Map.Entry<String, TreeMap<Long, Bucket>> contact : byContact.get(g).entrySet()) {
+                    out.writeUTF(contact.getKey());
+                    writeBuckets(out, contact.getValue());
+                }
+            }
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 스냅샷 읽기 (없거나 손상되었으면 null)
+     */
+    public static EmotionRollups load(Path path) {
+        if (!Files.exists(path)) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+
+            EmotionRollups rollups = new EmotionRollups();
+            rollups.messageCount = in.readInt();
+            for (int g = 0; g < GRANULARITIES.length; g++) {
+                readBuckets(in, rollups.global.get(g));
+                int contactCount = in.readInt();
+                for (int c = 0; c < contactCount; c++) {
+                    String contactName = in.readUTF();
+                    readBuckets(in, rollups.byContact.get(g).computeIfAbsent(contactName, k -> new TreeMap<>()));
+                }
+            }
+            return rollups;
+
+        } catch (IOException e) {
+            System.err.println("⚠️ 감정 집계 스냅샷 읽기 실패 (다시 계산합니다): " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeBuckets(DataOutputStream out, TreeMap<Long, Bucket> buckets) throws IOException {
+        out.writeInt(buckets.size());
+        for (Map.Entry<Long, Bucket> entry : buckets.entrySet()) {
+            out.writeLong(entry.getKey());
+            Bucket bucket = entry.getValue();
+            for (int e = 0; e < EMOTION_COUNT; e++) {
+                out.writeInt(bucket.counts[e]);
+                out.writeDouble(bucket.intensitySums[e]);
+                out.writeFloat(bucket.maxIntensities[e]);
+            }
+        }
+    }
+
+    private static void readBuckets(DataInputStream in, TreeMap<Long, Bucket> buckets) throws IOException {
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            long key = in.readLong();
+            Bucket bucket = new Bucket();
+            for (int e = 0; e < EMOTION_COUNT; e++) {
+                bucket.counts[e] = in.readInt();
+                bucket.intensitySums[e] = in.readDouble();
+                bucket.maxIntensities[e] = in.readFloat();
+            }
+            buckets.put(key, bucket);
+        }
+    }
+}
@@ -6,13 +6,25 @@ import model.MBTI;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
 import java.nio.charset.StandardCharsets;
-import java.util.List;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class GeminiService {
     
@@ -21,57 +33,364 @@ public class GeminiService {
     private static final String API_URL = 
 "https://generativelanguage.googleapis.com/v1/models/gemini-2.0-flash:generateContent";
     
-    private static final int TIMEOUT = 30000;
+    private static final int CONNECT_TIMEOUT = 10000;
+    
+    // 🔧 한 번의 시도의 제한 시간 (호출 전체의 제한 시간은 CallPolicy마다 따로)
+    private static final int ATTEMPT_TIMEOUT = 30000;
+    
+    // 🆕 재시도 간격: 0 ~ min(최대, 기본 × 2^(시도-1)) 사이에서 무작위 (동시에 실패한 요청들이 한꺼번에 다시 몰리지 않게)
+    private static final long RETRY_BASE_DELAY = 500;
+    private static final long RETRY_MAX_DELAY = 8000;
+    
+    // 🆕 헤지 요청: 응답 시간 기록이 충분히 쌓이기 전에는 기본 대기 시간으로
+    private static final int HEDGE_MIN_SAMPLES = 20;
+    private static final long HEDGE_DEFAULT_DELAY = 5000;
+    private static final long HEDGE_MIN_DELAY = 300;
+    
+    /**
+     * 🆕 호출 종류별 재시도 / 헤지 방식
+     * - deadline: 재시도까지 포함한 전체 제한 시간 (속도 조절기에서 기다리는 시간도 포함)
+     * - hedged: 이 종류의 응답 시간 p95가 지나도록 답이 없으면 같은 요청을 하나 더 보내고 먼저 온 답을 씀
+     */
+    private static class CallPolicy {
+        final String name;
+        final Duration deadline;
+        final int maxAttempts;
+        final boolean hedged;
+        final LatencyTracker latencies = new LatencyTracker();
+        
+        CallPolicy(String name, Duration deadline, int maxAttempts, boolean hedged) {
+            this.name = name;
+            this.deadline = deadline;
+            this.maxAttempts = maxAttempts;
+            this.hedged = hedged;
+        }
+    }
+    
+    // 사용자가 기다리는 감정 분석
+    private static final CallPolicy INTERACTIVE = new CallPolicy("감정 분석", Duration.ofSeconds(30), 3, true);
+    // 사용자가 기다리지만 응답이 긴 요청 (프로필 생성, 이미지 OCR) - 요청이 커서 헤지하지 않음
+    private static final CallPolicy GENERATION = new CallPolicy("생성", Duration.ofSeconds(60), 3, false);
+    // 일괄 분석 (기다리는 사람이 없으므로 넉넉히 재시도)
+    private static final CallPolicy BULK = new CallPolicy("일괄 분석", Duration.ofMinutes(3), 5, false);
+    
+    // 🆕 감정 분석 프롬프트 / 응답 형식을 바꾸면 올릴 것 (이전 버전의 캐시 결과는 쓰지 않음)
+    private static final int PROMPT_VERSION = 1;
+    
+    // 🆕 기본 설정은 하나의 HTTP 클라이언트를 공유 (HTTP/2 + 연결 재사용 → 요청마다 TLS 연결을 새로 맺지 않음)
+    private static final HttpClient SHARED_CLIENT = newHttpClient(Duration.ofMillis(CONNECT_TIMEOUT));
+    
+    // 🆕 API 키 하나의 할당량을 모든 인스턴스가 나눠 쓰므로 속도 조절도 하나로 공유
+    private static final AdaptiveRateLimiter SHARED_LIMITER = new AdaptiveRateLimiter();
+    
+    // 🆕 429 응답 본문의 RetryInfo ("retryDelay": "23s")
+    private static final Pattern RETRY_DELAY = Pattern.compile("\"retryDelay\"\\s*:\\s*\"(\\d+(?:\\.\\d+)?)s\"");
+    
+    private final HttpClient httpClient;
+    private final Duration readTimeout;
+    private final AnalysisCache cache; // 🆕 null이면 캐시 없이 항상 API 호출
+    private volatile boolean hedging = true;
+    
+    public GeminiService() {
+        this.httpClient = SHARED_CLIENT;
+        this.readTimeout = Duration.ofMillis(ATTEMPT_TIMEOUT);
+        this.cache = AnalysisCache.shared();
+    }
+    
+    /**
+     * 🆕 제한 시간 지정
+     * @param connectTimeout 연결 제한 시간
+     * @param readTimeout 🔧 시도 한 번마다 요청을 보낸 뒤 응답을 다 받을 때까지의 제한 시간
+     */
+    public GeminiService(Duration connectTimeout, Duration readTimeout) {
+        this(connectTimeout, readTimeout, AnalysisCache.shared());
+    }
+    
+    public GeminiService(Duration connectTimeout, Duration readTimeout, AnalysisCache cache) {
+        this.httpClient = newHttpClient(connectTimeout);
+        this.readTimeout = readTimeout;
+        this.cache = cache;
+    }
+    
+    public AnalysisCache getAnalysisCache() {
+        return cache;
+    }
+    
+    // 🆕 현재 동시 요청 한도 / 분당 요청 수 등 (진행 상황 표시용)
+    public AdaptiveRateLimiter getRateLimiter() {
+        return SHARED_LIMITER;
+    }
+    
+    // 🆕 감정 분석이 늦으면 같은 요청을 하나 더 보낼지 (기본: 보냄)
+    public void setHedgingEnabled(boolean hedging) {
+        this.hedging = hedging;
+    }
+    
+    private static HttpClient newHttpClient(Duration connectTimeout) {
+        return HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2) // 서버가 지원하지 않으면 HTTP/1.1 keep-alive로
+            .connectTimeout(connectTimeout)
+            .build();
+    }
     
     public Message analyzeEmotion(String text) throws Exception {
         return analyzeEmotion(text, null);
     }
     
     public Message analyzeEmotion(String text, MBTI mbti) throws Exception {
-        if (text == null || text.trim().isEmpty()) {
-            throw new IllegalArgumentException("분석할 텍스트가 비어있습니다.");
+        return await(analyzeEmotionAsync(text, mbti));
+    }
+    
+    /**
+     * 🆕 비동기 감정 분석: 응답을 기다리는 동안 스레드를 잡고 있지 않음
+     * (입력 오류 / API 키 미설정 / API 오류는 실패한 future로)
+     */
+    public CompletableFuture<Message> analyzeEmotionAsync(String text, MBTI mbti) {
+        try {
+            checkRequest(text);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
         }
         
-        if (!isApiKeySet()) {
-            throw new IllegalStateException(
-                "API 키가 설정되지 않았습니다.\n" +
-                "GeminiService.java 파일에서 API_KEY를 설정해주세요.");
+        // 🆕 같은 문장(+ MBTI)을 이미 분석했으면 API 호출 없이
+        long cacheKey = AnalysisCache.key(text, mbti, null, PROMPT_VERSION);
+        Message cached = cache == null ? null : cache.get(cacheKey, text);
+        if (cached != null) {
+            System.out.println("⚡ 캐시된 감정 분석 결과: " + cached.getEmotion().getKorean());
+            return CompletableFuture.completedFuture(cached);
         }
         
         System.out.println("📡 Gemini API 호출 중..." + 
             (mbti != null && mbti != MBTI.UNKNOWN ? " (MBTI: " + mbti.getCode() + ")" : ""));
         
         String prompt = createEmotionAnalysisPrompt(text, mbti);
-        String response = callGeminiAPI(prompt);
-        Message result = parseEmotionResponse(text, response);
-        
-        System.out.println("✅ 감정 분석 완료: " + result.getEmotion().getKorean());
-        
-        return result;
+        return callGeminiAPIAsync(prompt, INTERACTIVE).thenApply(response -> {
+            Message result = parseEmotionResponse(text, response, cacheKey);
+            System.out.println("✅ 감정 분석 완료: " + result.getEmotion().getKorean());
+            return result;
+        });
     }
 
     
     public Message analyzeEmotionWithContext(String currentMessage, String conversationContext, MBTI mbti) throws Exception {
-        if (currentMessage == null || currentMessage.trim().isEmpty()) {
-            throw new IllegalArgumentException("분석할 텍스트가 비어있습니다.");
+        return await(analyzeEmotionWithContextAsync(currentMessage, conversationContext, mbti));
+    }
+    
+    // 🆕 비동기 맥락 기반 감정 분석
+    public CompletableFuture<Message> analyzeEmotionWithContextAsync(String currentMessage, String conversationContext,
+                                                                     MBTI mbti) {
+        try {
+            checkRequest(currentMessage);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
         }
         
-        if (!isApiKeySet()) {
-            throw new IllegalStateException(
-                "API 키가 설정되지 않았습니다.\n" +
-                "GeminiService.java 파일에서 API_KEY를 설정해주세요.");
+        // 🆕 같은 맥락에서 같은 메시지를 이미 분석했으면 (대화를 다시 가져온 경우 등) API 호출 없이
+        long cacheKey = AnalysisCache.key(currentMessage, mbti,
+            conversationContext == null ? "" : conversationContext, PROMPT_VERSION);
+        Message cached = cache == null ? null : cache.get(cacheKey, currentMessage);
+        if (cached != null) {
+            System.out.println("⚡ 캐시된 맥락 기반 감정 분석 결과: " + cached.getEmotion().getKorean());
+            return CompletableFuture.completedFuture(cached);
         }
         
+        return requestWithContext(currentMessage, conversationContext, mbti, cacheKey, INTERACTIVE);
+    }
+    
+    // 캐시 확인 없이 맥락 기반 분석 요청 (결과는 cacheKey로 저장)
+    private CompletableFuture<Message> requestWithContext(String currentMessage, String conversationContext,
+                                                          MBTI mbti, long cacheKey, CallPolicy policy) {
         System.out.println("📡 맥락 기반 감정 분석 중..." + 
             (mbti != null && mbti != MBTI.UNKNOWN ? " (MBTI: " + mbti.getCode() + ")" : ""));
         
         String prompt = createContextAnalysisPrompt(currentMessage, conversationContext, mbti);
-        String response = callGeminiAPI(prompt);
-        Message result = parseEmotionResponse(currentMessage, response);
+        return callGeminiAPIAsync(prompt, policy).thenApply(response -> {
+            Message result = parseEmotionResponse(currentMessage, response, cacheKey);
+            System.out.println("✅ 맥락 기반 감정 분석 완료: " + result.getEmotion().getKorean());
+            return result;
+        });
+    }
+    
+    /**
+     * 🆕 일괄 분석 항목 하나
+     * - id: 응답에서 항목을 찾을 때 쓰는 이름 (한 번의 요청 안에서 겹치지 않게)
+     * - context: 이 메시지 하나만 따로 분석할 때의 맥락 (캐시 키, 응답에서 빠졌을 때 다시 요청)
+     * - transcriptLine: 묶음 요청의 대화 기록에서 이 메시지가 끝나는 줄 번호 (그 앞이 맥락)
+     */
+    public static class BatchItem {
+        private final String id;
+        private final String message;
+        private final String context;
+        private final int transcriptLine;
         
-        System.out.println("✅ 맥락 기반 감정 분석 완료: " + result.getEmotion().getKorean());
+        public BatchItem(String id, String message, String context, int transcriptLine) {
+            this.id = id;
+            this.message = message;
+            this.context = context;
+            this.transcriptLine = transcriptLine;
+        }
         
-        return result;
+        public String getId() { return id; }
+        public String getMessage() { return message; }
+        public String getContext() { return context; }
+        public int getTranscriptLine() { return transcriptLine; }
+    }
+    
+    /**
+     * 🆕 여러 메시지를 한 번의 generateContent 호출로 분석
+     * 대화 기록(번호 붙은 줄)은 한 번만 보내고, 항목마다 기록의 몇 번 줄까지가 맥락인지만 알려줌
+     * - 캐시에 있는 항목은 요청에 넣지 않음
+     * - 응답에서 빠졌거나 형식이 틀린 항목은 하나씩 다시 요청 (맥락 기반 분석과 같은 프롬프트)
+     * - 요청 자체가 실패하면 (429 등) 해당 항목들 모두 같은 예외로 실패
+     * @param transcript "번호. [시각] 보낸 사람: 내용" 줄들
+     * @return items와 같은 순서의 결과
+     */
+    public List<CompletableFuture<Message>> analyzeBatchAsync(String transcript, List<BatchItem> items, MBTI mbti) {
+        List<CompletableFuture<Message>> results = new ArrayList<>(items.size());
+        List<BatchItem> pending = new ArrayList<>();
+        List<CompletableFuture<Message>> pendingResults = new ArrayList<>();
+        
+        for (BatchItem item : items) {
+            try {
+                checkRequest(item.getMessage());
+            } catch (RuntimeException e) {
+                results.add(CompletableFuture.failedFuture(e));
+                continue;
+            }
+            
+            Message cached = cache == null ? null : cache.get(cacheKeyOf(item, mbti), item.getMessage());
+            if (cached != null) {
+                results.add(CompletableFuture.completedFuture(cached));
+                continue;
+            }
+            
+            CompletableFuture<Message> result = new CompletableFuture<>();
+            results.add(result);
+            pending.add(item);
+            pendingResults.add(result);
+        }
+        
+        if (pending.size() == 1) {
+            BatchItem item = pending.get(0);
+            requestWithContext(item.getMessage(), item.getContext(), mbti, cacheKeyOf(item, mbti), BULK).whenComplete((message, error) -> {
+                if (error != null) {
+                    pendingResults.get(0).completeExceptionally(error);
+                } else {
+                    pendingResults.get(0).complete(message);
+                }
+            });
+        } else if (!pending.isEmpty()) {
+            System.out.println("📡 일괄 감정 분석 중... (" + pending.size() + "개 메시지, 1회 호출)" + 
+                (mbti != null && mbti != MBTI.UNKNOWN ? " (MBTI: " + mbti.getCode() + ")" : ""));
+            
+            String prompt = createBatchAnalysisPrompt(transcript, pending, mbti);
+            callGeminiAPIAsync(prompt, BULK).whenComplete((response, error) -> {
+                if (error != null) {
+                    for (CompletableFuture<Message> result : pendingResults) {
+                        result.completeExceptionally(error);
+                    }
+                    return;
+                }
+                completeBatch(response, pending, pendingResults, mbti);
+            });
+        }
+        
+        return results;
+    }
+    
+    // analyzeEmotionWithContextAsync와 같은 키 (따로 분석한 결과와 캐시를 함께 씀)
+    private static long cacheKeyOf(BatchItem item, MBTI mbti) {
+        return AnalysisCache.key(item.getMessage(), mbti, item.getContext() == null ? "" : item.getContext(), PROMPT_VERSION);
+    }
+    
+    // 응답을 항목별로 나눠서 완료, 빠진 항목은 하나씩 다시 요청
+    private void completeBatch(String response, List<BatchItem> items, List<CompletableFuture<Message>> results, MBTI mbti) {
+        Map<String, List<String>> blocks = new HashMap<>();
+        try {
+            List<String> current = null;
+            for (String line : extractResponseText(response).split("\n")) {
+                String trimmed = line.trim();
+                if (trimmed.startsWith("###")) {
+                    current = new ArrayList<>();
+                    blocks.put(trimmed.replaceAll("[#\\[\\]\\s]", ""), current);
+                } else if (current != null) {
+                    current.add(trimmed);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("❌ 일괄 응답 파싱 실패: " + e.getMessage());
+        }
+        
+        int retried = 0;
+        for (int i = 0; i < items.size(); i++) {
+            BatchItem item = items.get(i);
+            CompletableFuture<Message> result = results.get(i);
+            List<String> block = blocks.get(item.getId());
+            Message message = block == null ? null : parseEmotionLines(item.getMessage(), block, true);
+            
+            if (message != null) {
+                if (cache != null) {
+                    cache.put(cacheKeyOf(item, mbti), message);
+                }
+                result.complete(message);
+                continue;
+            }
+            
+            retried++;
+            requestWithContext(item.getMessage(), item.getContext(), mbti, cacheKeyOf(item, mbti), BULK).whenComplete((single, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(single);
+                }
+            });
+        }
+        
+        System.out.println("✅ 일괄 감정 분석 완료: " + (items.size() - retried) + "/" + items.size() + "개" +
+            (retried > 0 ? " (빠진 " + retried + "개는 하나씩 다시 요청)" : ""));
+    }
+    
+    private String createBatchAnalysisPrompt(String transcript, List<BatchItem> items, MBTI mbti) {
+        String mbtiContext = "";
+        if (mbti != null && mbti != MBTI.UNKNOWN) {
+            mbtiContext = "\n\n🧠 **상대방 MBTI: " + mbti.getCode() + " (" + mbti.getNickname() + ")**\n" +
+                         "특성: " + mbti.getCharacteristic() + "\n" +
+                         "감정 해석 가이드: " + mbti.getEmotionInterpretationGuideline() + "\n";
+        }
+        
+        StringBuilder targets = new StringBuilder();
+        for (BatchItem item : items) {
+            targets.append("[").append(item.getId()).append("] (").append(item.getTranscriptLine()).append("번 줄) \"")
+                .append(item.getMessage()).append("\"\n");
+        }
+        
+        return "당신은 감정 분석 전문가입니다.\n\n" +
+               "📚 **대화 기록** (번호. [시각] 보낸 사람: 내용, '...'은 생략된 부분):\n" +
+               transcript +
+               mbtiContext +
+               "\n\n🎯 **분석할 '상대방' 메시지 " + items.size() + "개:**\n" +
+               targets +
+               "\n⚠️ 중요: 각 메시지는 대화 기록의 해당 번호 줄에서 끝납니다. 그 줄 이전의 대화만 맥락으로 삼아 " +
+               "메시지마다 따로 감정을 분석하고 답변을 추천해주세요. 이후의 대화는 참고하지 마세요.\n\n" +
+               "반드시 모든 항목에 대해, 항목 순서대로 아래 형식을 정확히 지켜서 답변해주세요:\n\n" +
+               "### [항목 ID]\n" +
+               "감정: [기쁨/슬픔/분노/공포/혐오/놀람/중립 중 정확히 하나만]\n" +
+               "강도: [0.0에서 1.0 사이의 소수점 숫자]\n" +
+               "분석: [대화 맥락을 고려한 감정 분석 이유를 1-2문장으로]\n" +
+               "추천답변: [대화 흐름과 상대방 감정을 고려한 공감적이고 적절한 답변 1-2문장]\n\n" +
+               "⚠️ 중요: 분석과 추천답변은 그 메시지와 같은 언어로 작성하세요 (한국어 메시지면 반드시 한국어로)!";
+    }
+    
+    private void checkRequest(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            throw new IllegalArgumentException("분석할 텍스트가 비어있습니다.");
+        }
+        
+        if (!isApiKeySet()) {
+            throw new IllegalStateException(
+                "API 키가 설정되지 않았습니다.\n" +
+                "GeminiService.java 파일에서 API_KEY를 설정해주세요.");
+        }
     }
     
     private String createContextAnalysisPrompt(String currentMessage, String conversationContext, MBTI mbti) {
@@ -194,129 +513,275 @@ public class GeminiService {
         return koreanRatio >= 0.3;
     }
     
-    private String callGeminiAPI(String prompt) throws Exception {
-        URL url = new URL(API_URL + "?key=" + API_KEY);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+    // 🆕 텍스트 프롬프트 호출 → 응답 본문 (재시도해도 200이 아니면 실패한 future)
+    private CompletableFuture<String> callGeminiAPIAsync(String prompt, CallPolicy policy) {
+        JSONObject requestBody = new JSONObject();
+        JSONArray contents = new JSONArray();
+        JSONObject content = new JSONObject();
+        JSONArray parts = new JSONArray();
+        JSONObject part = new JSONObject();
         
-        try {
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
-            conn.setDoOutput(true);
-            conn.setConnectTimeout(TIMEOUT);
-            conn.setReadTimeout(TIMEOUT);
-            
-            JSONObject requestBody = new JSONObject();
-            JSONArray contents = new JSONArray();
-            JSONObject content = new JSONObject();
-            JSONArray parts = new JSONArray();
-            JSONObject part = new JSONObject();
-            
-            part.put("text", prompt);
-            parts.put(part);
-            content.put("parts", parts);
-            contents.put(content);
-            requestBody.put("contents", contents);
-            
-            try (OutputStream os = conn.getOutputStream()) {
-                byte[] input = requestBody.toString().getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
-            }
-            
-            int responseCode = conn.getResponseCode();
+        part.put("text", prompt);
+        parts.put(part);
+        content.put("parts", parts);
+        contents.put(content);
+        requestBody.put("contents", contents);
+        
+        return send(requestBody, policy).thenApply(response -> {
+            int responseCode = response.statusCode();
             
             if (responseCode != 200) {
-                BufferedReader errorReader = new BufferedReader(
-                    new InputStreamReader(conn.getErrorStream(), StandardCharsets.UTF_8));
-                StringBuilder errorResponse = new StringBuilder();
-                String line;
-                while ((line = errorReader.readLine()) != null) {
-                    errorResponse.append(line);
-                }
-                errorReader.close();
-                
                 String errorMsg = "API 호출 실패 (코드: " + responseCode + ")\n";
                 if (responseCode == 403) {
                     errorMsg += "API 키가 올바르지 않거나 권한이 없습니다.";
                 } else if (responseCode == 429) {
                     errorMsg += "API 호출 한도를 초과했습니다.";
                 } else {
-                    errorMsg += "오류 내용: " + errorResponse.toString();
+                    errorMsg += "오류 내용: " + response.body();
                 }
                 
-                throw new Exception(errorMsg);
+                throw new CompletionException(new Exception(errorMsg));
             }
             
-            BufferedReader br = new BufferedReader(
-                new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
-            StringBuilder response = new StringBuilder();
-            String responseLine;
-            while ((responseLine = br.readLine()) != null) {
-                response.append(responseLine.trim());
+            return response.body();
+        });
+    }
+    
+    /**
+     * 🆕 재시도 / 헤지를 포함한 요청 전송
+     * - 429, 5xx, 네트워크 오류 / 시간 초과는 재시도 (간격은 지수적으로 늘리되 무작위로 흩뜨림)
+     * - 400, 403 등은 다시 보내도 같으므로 바로 결과로
+     * - policy.deadline이 지나면 진행 중인 시도를 취소하고 시간 초과로 실패
+     * @return 마지막 시도의 응답 (200이 아닐 수 있음)
+     */
+    private CompletableFuture<HttpResponse<String>> send(JSONObject requestBody, CallPolicy policy) {
+        long deadlineNanos = System.nanoTime() + policy.deadline.toNanos();
+        CompletableFuture<HttpResponse<String>> result = new CompletableFuture<>();
+        
+        // 제한 시간 타이머 (먼저 끝나면 타이머도 취소됨)
+        CompletableFuture<Void> timer = new CompletableFuture<Void>().orTimeout(policy.deadline.toNanos(), TimeUnit.NANOSECONDS);
+        timer.whenComplete((ignored, timeout) -> {
+            if (timeout != null) {
+                result.completeExceptionally(new HttpTimeoutException(
+                    "API 응답 제한 시간(" + policy.deadline.getSeconds() + "초)을 넘었습니다."));
+            }
+        });
+        result.whenComplete((r, e) -> timer.complete(null));
+        
+        attempt(requestBody, policy, deadlineNanos, 1, result);
+        return result;
+    }
+    
+    private void attempt(JSONObject requestBody, CallPolicy policy, long deadlineNanos, int attempt,
+                         CompletableFuture<HttpResponse<String>> result) {
+        CompletableFuture<HttpResponse<String>> response = policy.hedged && hedging
+            ? hedged(requestBody, policy, deadlineNanos)
+            : post(requestBody, deadlineNanos);
+        result.whenComplete((r, e) -> response.cancel(true)); // 제한 시간 초과 → 진행 중인 시도 취소
+        
+        response.whenComplete((r, error) -> {
+            if (result.isDone()) {
+                return;
             }
-            br.close();
+            String reason = error != null ? retryReason(error) : retryReason(r.statusCode());
+            long delay = ThreadLocalRandom.current().nextLong(
+                Math.min(RETRY_MAX_DELAY, RETRY_BASE_DELAY << (attempt - 1)) + 1);
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
             
-            return response.toString();
+            if (reason == null || attempt >= policy.maxAttempts || remainingMillis <= delay) {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(r);
+                }
+                return;
+            }
             
-        } finally {
-            conn.disconnect();
+            System.out.println("🔁 " + policy.name + " 재시도 " + (attempt + 1) + "/" + policy.maxAttempts +
+                " (" + reason + ", " + delay + "ms 후)");
+            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> {
+                if (!result.isDone()) {
+                    attempt(requestBody, policy, deadlineNanos, attempt + 1, result);
+                }
+            });
+        });
+    }
+    
+    // 다시 보내면 나아질 수 있는 실패면 그 이유, 아니면 null
+    private static String retryReason(int statusCode) {
+        if (statusCode == 429 || statusCode == 500 || statusCode == 502 || statusCode == 503 || statusCode == 504) {
+            return "코드 " + statusCode;
         }
+        return null;
     }
     
-    private Message parseEmotionResponse(String originalText, String apiResponse) {
-        try {
-            JSONObject jsonResponse = new JSONObject(apiResponse);
-            JSONArray candidates = jsonResponse.getJSONArray("candidates");
-            
-            if (candidates.length() == 0) {
-                throw new Exception("API 응답에 결과가 없습니다.");
+    private static String retryReason(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof HttpTimeoutException) {
+            return "시간 초과";
+        }
+        if (cause instanceof IOException) {
+            return "네트워크 오류: " + cause.getClass().getSimpleName();
+        }
+        return null;
+    }
+    
+    /**
+     * 🆕 헤지 요청: 이 종류의 p95만큼 기다려도 답이 없으면 같은 요청을 하나 더 보내고 먼저 온 200 응답을 씀
+     * (한쪽이 실패해도 다른 쪽이 아직 진행 중이면 기다림, 끝나면 남은 쪽은 취소)
+     * 속도 조절기에 여유가 없으면 (대기 중인 요청이 있거나 한도 초과로 쉬는 중) 더 보내지 않음
+     */
+    private CompletableFuture<HttpResponse<String>> hedged(JSONObject requestBody, CallPolicy policy, long deadlineNanos) {
+        CompletableFuture<HttpResponse<String>> result = new CompletableFuture<>();
+        List<CompletableFuture<HttpResponse<String>>> launched = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger outstanding = new AtomicInteger();
+        
+        Runnable launch = () -> {
+            long startNanos = System.nanoTime();
+            boolean hedge = outstanding.getAndIncrement() > 0;
+            CompletableFuture<HttpResponse<String>> response = post(requestBody, deadlineNanos);
+            launched.add(response);
+            response.whenComplete((r, error) -> {
+                boolean success = r != null && r.statusCode() == 200;
+                if (success) {
+                    policy.latencies.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+                    if (hedge && !result.isDone()) {
+                        System.out.println("⚡ 헤지 요청이 먼저 응답");
+                    }
+                }
+                if (outstanding.decrementAndGet() == 0 || success) {
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                    } else {
+                        result.complete(r);
+                    }
+                }
+            });
+            if (result.isDone()) {
+                response.cancel(true);
+            }
+        };
+        result.whenComplete((r, e) -> {
+            synchronized (launched) {
+                for (CompletableFuture<HttpResponse<String>> response : launched) {
+                    response.cancel(true); // 이미 끝난 쪽은 영향 없음
+                }
+            }
+        });
+        
+        launch.run();
+        
+        long p95 = policy.latencies.size() >= HEDGE_MIN_SAMPLES ? policy.latencies.percentile(0.95) : HEDGE_DEFAULT_DELAY;
+        long delay = Math.max(HEDGE_MIN_DELAY, p95);
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> {
+            if (!result.isDone() && System.nanoTime() < deadlineNanos && SHARED_LIMITER.hasSpareCapacity()) {
+                System.out.println("🪁 " + delay + "ms 동안 응답이 없어 같은 요청을 하나 더 보냄");
+                launch.run();
+            }
+        });
+        return result;
+    }
+    
+    // 🆕 공유 클라이언트로 요청 전송 (연결은 닫지 않고 다음 요청에 재사용)
+    // 🔧 속도 조절기에서 차례를 받은 뒤 보내고, 응답 코드 / Retry-After를 돌려줘서 한도를 조절
+    // 🔧 시도 한 번의 제한 시간 = min(readTimeout, 전체 제한 시간까지 남은 시간), 취소하면 보내던 요청도 중단
+    private CompletableFuture<HttpResponse<String>> post(JSONObject requestBody, long deadlineNanos) {
+        CompletableFuture<HttpResponse<String>> result = new CompletableFuture<>();
+        CompletableFuture<Void> permit = SHARED_LIMITER.acquire();
+        result.whenComplete((r, e) -> permit.cancel(false)); // 차례를 받기 전에 끝나면 대기열에서 빠짐
+        
+        permit.thenRun(() -> {
+            long remainingNanos = deadlineNanos - System.nanoTime();
+            if (result.isDone() || remainingNanos <= 0) {
+                SHARED_LIMITER.release(-1, 0);
+                result.completeExceptionally(new HttpTimeoutException("API 응답 제한 시간을 넘었습니다."));
+                return;
+            }
+            Duration timeout = Duration.ofNanos(remainingNanos);
+            if (timeout.compareTo(readTimeout) > 0) {
+                timeout = readTimeout;
             }
             
-            JSONObject candidate = candidates.getJSONObject(0);
-            JSONObject content = candidate.getJSONObject("content");
-            JSONArray parts = content.getJSONArray("parts");
-            String text = parts.getJSONObject(0).getString("text");
-            
-            System.out.println("📄 AI 응답:\n" + text);
-            
-            Emotion emotion = Emotion.NEUTRAL;
-            double intensity = 0.5;
-            String recommendedResponse = "";
+            HttpRequest request = HttpRequest.newBuilder(URI.create(API_URL + "?key=" + API_KEY))
+                .timeout(timeout)
+                .header("Content-Type", "application/json; charset=UTF-8")
+                .POST(HttpRequest.BodyPublishers.ofString(requestBody.toString(), StandardCharsets.UTF_8))
+                .build();
+            CompletableFuture<HttpResponse<String>> exchange =
+                httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            result.whenComplete((r, e) -> exchange.cancel(true));
             
-            String[] lines = text.split("\n");
-            for (String line : lines) {
-                line = line.trim();
-                
-                if (line.startsWith("감정:") || line.startsWith("감정 :")) {
-                    String emotionStr = line.substring(line.indexOf(":") + 1).trim();
-                    emotionStr = emotionStr.replaceAll("[\\[\\]\\(\\)]", "").trim();
-                    emotion = Emotion.fromKorean(emotionStr);
-                    
-                } else if (line.startsWith("강도:") || line.startsWith("강도 :")) {
-                    String intensityStr = line.substring(line.indexOf(":") + 1).trim();
-                    try {
-                        intensityStr = intensityStr.replaceAll("[^0-9.]", "");
-                        double parsedIntensity = Double.parseDouble(intensityStr);
-                        
-                        if (parsedIntensity > 1.0 && parsedIntensity <= 100) {
-                            parsedIntensity = parsedIntensity / 100.0;
-                        }
-                        
-                        intensity = Math.max(0.0, Math.min(1.0, parsedIntensity));
-                    } catch (NumberFormatException e) {
-                        intensity = 0.5;
-                    }
-                    
-                } else if (line.startsWith("추천답변:") || line.startsWith("추천답변 :") ||
-                          line.startsWith("추천 답변:") || line.startsWith("추천 답변 :")) {
-                    recommendedResponse = line.substring(line.indexOf(":") + 1).trim();
+            exchange.whenComplete((response, error) -> {
+                if (response == null) {
+                    SHARED_LIMITER.release(-1, 0);
+                    result.completeExceptionally(error);
+                } else {
+                    SHARED_LIMITER.release(response.statusCode(), retryAfterMillis(response));
+                    result.complete(response);
+                }
+            });
+        });
+        return result;
+    }
+    
+    // 🆕 서버가 알려준 대기 시간: Retry-After 헤더 (초 또는 HTTP 날짜), 없으면 본문의 retryDelay
+    private static long retryAfterMillis(HttpResponse<String> response) {
+        if (response.statusCode() != 429 && response.statusCode() != 503) {
+            return 0;
+        }
+        Optional<String> header = response.headers().firstValue("Retry-After");
+        if (header.isPresent()) {
+            String value = header.get().trim();
+            try {
+                return Math.max(0, (long) (Double.parseDouble(value) * 1000));
+            } catch (NumberFormatException e) {
+                try {
+                    ZonedDateTime at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+                    return Math.max(0, Duration.between(ZonedDateTime.now(), at).toMillis());
+                } catch (Exception ignored) {
                 }
             }
-            
-            if (recommendedResponse.isEmpty()) {
-                recommendedResponse = generateDefaultResponse(emotion);
+        }
+        String body = response.body();
+        if (body != null) {
+            Matcher matcher = RETRY_DELAY.matcher(body);
+            if (matcher.find()) {
+                return (long) (Double.parseDouble(matcher.group(1)) * 1000);
+            }
+        }
+        return 0;
+    }
+    
+    // 🆕 비동기 결과를 기다림 (작업 중에 난 예외는 감싸지 않고 그대로 던짐)
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
             }
+            throw e;
+        }
+    }
+    
+    // 🆕 파싱에 성공한 결과만 캐시에 저장 (실패해서 만든 기본 결과는 저장하지 않음)
+    private Message parseEmotionResponse(String originalText, String apiResponse, long cacheKey) {
+        try {
+            String text = extractResponseText(apiResponse);
             
-            return new Message(originalText, emotion, intensity, recommendedResponse);
+            System.out.println("📄 AI 응답:\n" + text);
+            
+            List<String> lines = Arrays.asList(text.split("\n"));
+            Message result = parseEmotionLines(originalText, lines, true);
+            if (result == null) {
+                // 감정 줄이 없으면 기본값(중립)으로 보여주되 캐시하지 않음 (다음에 다시 분석)
+                System.err.println("⚠️ 응답에 감정 줄이 없어 기본값으로 처리 (캐시하지 않음)");
+                return parseEmotionLines(originalText, lines, false);
+            }
+            if (cache != null) {
+                cache.put(cacheKey, result);
+            }
+            return result;
             
         } catch (Exception e) {
             System.err.println("❌ 응답 파싱 실패: " + e.getMessage());
@@ -326,6 +791,72 @@ public class GeminiService {
         }
     }
     
+    // 응답 JSON에서 생성된 텍스트
+    private String extractResponseText(String apiResponse) throws Exception {
+        JSONObject jsonResponse = new JSONObject(apiResponse);
+        JSONArray candidates = jsonResponse.getJSONArray("candidates");
+        
+        if (candidates.length() == 0) {
+            throw new Exception("API 응답에 결과가 없습니다.");
+        }
+        
+        JSONObject candidate = candidates.getJSONObject(0);
+        JSONObject content = candidate.getJSONObject("content");
+        JSONArray parts = content.getJSONArray("parts");
+        return parts.getJSONObject(0).getString("text");
+    }
+    
+    /**
+     * "감정: / 강도: / 추천답변:" 형식의 줄들 해석
+     * @param requireEmotion true면 감정 줄이 없을 때 null (일괄 분석에서 답이 빠진 항목)
+     */
+    private Message parseEmotionLines(String originalText, List<String> lines, boolean requireEmotion) {
+        Emotion emotion = Emotion.NEUTRAL;
+        double intensity = 0.5;
+        String recommendedResponse = "";
+        boolean hasEmotion = false;
+        
+        for (String line : lines) {
+            line = line.trim();
+            
+            if (line.startsWith("감정:") || line.startsWith("감정 :")) {
+                String emotionStr = line.substring(line.indexOf(":") + 1).trim();
+                emotionStr = emotionStr.replaceAll("[\\[\\]\\(\\)]", "").trim();
+                emotion = Emotion.fromKorean(emotionStr);
+                hasEmotion = true;
+                
+            } else if (line.startsWith("강도:") || line.startsWith("강도 :")) {
+                String intensityStr = line.substring(line.indexOf(":") + 1).trim();
+                try {
+                    intensityStr = intensityStr.replaceAll("[^0-9.]", "");
+                    double parsedIntensity = Double.parseDouble(intensityStr);
+                    
+                    if (parsedIntensity > 1.0 && parsedIntensity <= 100) {
+                        parsedIntensity = parsedIntensity / 100.0;
+                    }
+                    
+                    intensity = Math.max(0.0, Math.min(1.0, parsedIntensity));
+                } catch (NumberFormatException e) {
+                    intensity = 0.5;
+                }
+                
+            } else if (line.startsWith("추천답변:") || line.startsWith("추천답변 :") ||
+                      line.startsWith("추천 답변:") || line.startsWith("추천 답변 :")) {
+                recommendedResponse = line.substring(line.indexOf(":") + 1).trim();
+            }
+        }
+        
+        if (requireEmotion && !hasEmotion) {
+            return null;
+        }
+        
+        if (recommendedResponse.isEmpty()) {
+            recommendedResponse = generateDefaultResponse(emotion);
+        }
+        
+        return new Message(originalText, emotion, intensity, recommendedResponse);
+    }
+    
     private String generateDefaultResponse(Emotion emotion) {
         switch (emotion) {
             case JOY:
@@ -390,7 +921,7 @@ public class GeminiService {
                        "4. 이 사람과 대화할 때 주의할 점\n\n" +
                        "⚠️ 반드시 한국어로, 존댓말로, 객관적이고 따뜻한 어조로 작성하세요.";
         
-        String response = callGeminiAPI(prompt);
+        String response = await(callGeminiAPIAsync(prompt, GENERATION));
         
         try {
             JSONObject jsonResponse = new org.json.JSONObject(response);
@@ -498,54 +1029,27 @@ public class GeminiService {
         requestBody.put("contents", contents);
         
         // API 호출
-        URL url = new URL(API_URL + "?key=" + API_KEY);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        HttpResponse<String> response = await(send(requestBody, GENERATION));
+        int responseCode = response.statusCode();
         
-        try {
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
-            conn.setDoOutput(true);
-            conn.setConnectTimeout(TIMEOUT);
-            conn.setReadTimeout(TIMEOUT);
-            
-            try (OutputStream os = conn.getOutputStream()) {
-                byte[] input = requestBody.toString().getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
-            }
-            
-            int responseCode = conn.getResponseCode();
-            
-            if (responseCode != 200) {
-                throw new Exception("OCR API 호출 실패 (코드: " + responseCode + ")");
-            }
-            
-            BufferedReader br = new BufferedReader(
-                new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
-            StringBuilder response = new StringBuilder();
-            String responseLine;
-            while ((responseLine = br.readLine()) != null) {
-                response.append(responseLine.trim());
-            }
-            br.close();
-            
-            // 응답 파싱
-            JSONObject jsonResponse = new JSONObject(response.toString());
-            JSONArray candidates = jsonResponse.getJSONArray("candidates");
-            
-            if (candidates.length() == 0) {
-                throw new Exception("OCR 응답에 결과가 없습니다.");
-            }
-            
-            JSONObject candidate = candidates.getJSONObject(0);
-            JSONObject contentObj = candidate.getJSONObject("content");
-            JSONArray partsArray = contentObj.getJSONArray("parts");
-            String extractedText = partsArray.getJSONObject(0).getString("text");
-            
-            return extractedText.trim();
-            
-        } finally {
-            conn.disconnect();
+        if (responseCode != 200) {
+            throw new Exception("OCR API 호출 실패 (코드: " + responseCode + ")");
         }
+        
+        // 응답 파싱
+        JSONObject jsonResponse = new JSONObject(response.body());
+        JSONArray candidates = jsonResponse.getJSONArray("candidates");
+        
+        if (candidates.length() == 0) {
+            throw new Exception("OCR 응답에 결과가 없습니다.");
+        }
+        
+        JSONObject candidate = candidates.getJSONObject(0);
+        JSONObject contentObj = candidate.getJSONObject("content");
+        JSONArray partsArray = contentObj.getJSONArray("parts");
+        String extractedText = partsArray.getJSONObject(0).getString("text");
+        
+        return extractedText.trim();
     }
 
     public static boolean isApiKeySet() {
@@ -0,0 +1,182 @@
+package service;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 카카오톡 대화별 가져오기 체크포인트 (data/import_checkpoints.bin)
+ * 같은 대화를 다시 내보내면 이전 파일 내용 뒤에 새 메시지만 붙으므로
+ * 지난번에 읽은 끝 위치와 그 직전 내용의 해시를 저장해 두고, 새 파일에서 해시가 같으면 그 뒤만 파싱
+ *
+ * 대화는 참여자 이름(정렬)으로 구분
+ */
+public class ImportCheckpoints {
+    private static final String CHECKPOINT_FILE = "data/import_checkpoints.bin";
+    private static final int MAGIC = 0x454D4331; // "EMC1"
+    private static final int TAIL_HASH_BYTES = 4096; // 끝 위치 직전 몇 바이트로 같은 파일인지 확인
+
+    public static class Checkpoint {
+        private final String participantsKey;
+        private final long endOffset;          // 지난번에 읽은 마지막 위치 (다음 레코드 시작)
+        private final long contextOffset;      // 맥락용으로 다시 읽기 시작할 위치 (끝에서 몇 레코드 앞)
+        private final int contextRecordCount;  // [contextOffset, endOffset) 구간의 레코드 수
+        private final long tailHash;           // [endOffset - TAIL_HASH_BYTES, endOffset) 해시
+        private final LocalDateTime lastTimestamp;
+        private final ParticipantStats participantStats;
+        private final int totalMessageCount;
+        private String replacesKey; // 이어서 가져온 이전 체크포인트 (참여자가 바뀌면 키도 바뀜)
+
+        Checkpoint(String participantsKey, long endOffset, long contextOffset, int contextRecordCount,
+                   long tailHash, LocalDateTime lastTimestamp, ParticipantStats participantStats,
+                   int totalMessageCount) {
+            this.participantsKey = participantsKey;
+            this.endOffset = endOffset;
+            this.contextOffset = contextOffset;
+            this.contextRecordCount = contextRecordCount;
+            this.tailHash = tailHash;
+            this.lastTimestamp = lastTimestamp;
+            this.participantStats = participantStats.copy();
+            this.totalMessageCount = totalMessageCount;
+        }
+
+        public String getParticipantsKey() { return participantsKey; }
+        public long getEndOffset() { return endOffset; }
+        public long getContextOffset() { return contextOffset; }
+        public int getContextRecordCount() { return contextRecordCount; }
+        public LocalDateTime getLastTimestamp() { return lastTimestamp; }
+        public ParticipantStats getParticipantStats() { return participantStats; }
+        public int getTotalMessageCount() { return totalMessageCount; }
+
+        void setReplacesKey(String replacesKey) { this.replacesKey = replacesKey; }
+    }
+
+    private final Path path;
+    private final Map<String, Checkpoint> checkpoints = new LinkedHashMap<>();
+
+    public ImportCheckpoints() {
+        this(Paths.get(CHECKPOINT_FILE));
+    }
+
+    public ImportCheckpoints(Path path) {
+        this.path = path;
+        load();
+    }
+
+    public static String participantsKey(Collection<String> participants) {
+        List<String> sorted = new ArrayList<>(participants);
+        Collections.sort(sorted);
+        return String.join("\n", sorted);
+    }
+
+    /**
+     * 이 파일이 이전에 가져온 대화의 이어진 내보내기인지 확인
+     * @return 해당 체크포인트 (없으면 null)
+     */
+    public synchronized Checkpoint findFor(FileChannel channel) throws IOException {
+        long size = channel.size();
+        for (Checkpoint checkpoint : checkpoints.values()) {
+            if (checkpoint.endOffset > 0 && checkpoint.endOffset <= size
+                && hashRange(channel, checkpoint.endOffset) == checkpoint.tailHash) {
+                return checkpoint;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 가져오기가 끝난 뒤 체크포인트 저장 (참여자가 바뀌었으면 이전 키는 삭제)
+     */
+    public synchronized void save(Checkpoint checkpoint) {
+        if (checkpoint == null) {
+            return;
+        }
+        if (checkpoint.replacesKey != null) {
+            checkpoints.remove(checkpoint.replacesKey);
+        }
+        checkpoints.put(checkpoint.participantsKey, checkpoint);
+
+        try {
+            writeFile();
+        } catch (IOException e) {
+            System.err.println("❌ 가져오기 체크포인트 저장 실패: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    // end 직전 TAIL_HASH_BYTES 바이트의 FNV-1a 해시
+    static long hashRange(FileChannel channel, long end) throws IOException {
+        long start = Math.max(0, end - TAIL_HASH_BYTES);
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+
+        long hash = 0xcbf29ce484222325L;
+        while (buffer.hasRemaining()) {
+            hash ^= buffer.get() & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private void load() {
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                long endOffset = in.readLong();
+                long contextOffset = in.readLong();
+                int contextRecordCount = in.readInt();
+                long tailHash = in.readLong();
+                LocalDateTime lastTimestamp = MessageStore.fromEpochMillis(in.readLong());
+                ParticipantStats participantStats = ParticipantStats.read(in);
+                int totalMessageCount = in.readInt();
+
+                checkpoints.put(key, new Checkpoint(key, endOffset, contextOffset, contextRecordCount,
+                    tailHash, lastTimestamp, participantStats, totalMessageCount));
+            }
+            System.out.println("📌 가져오기 체크포인트 " + checkpoints.size() + "개를 불러왔습니다.");
+
+        } catch (IOException e) {
+            System.err.println("⚠️ 가져오기 체크포인트 읽기 실패 (처음부터 파싱합니다): " + e.getMessage());
+            checkpoints.clear();
+        }
+    }
+
+    // 임시 파일에 쓰고 교체
+    private void writeFile() throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(checkpoints.size());
+            for (Checkpoint checkpoint : checkpoints.values()) {
+                out.writeUTF(checkpoint.participantsKey);
+                out.writeLong(checkpoint.endOffset);
+                out.writeLong(checkpoint.contextOffset);
+                out.writeInt(checkpoint.contextRecordCount);
+                out.writeLong(checkpoint.tailHash);
+                out.writeLong(MessageStore.toEpochMillis(checkpoint.lastTimestamp));
+                checkpoint.participantStats.write(out);
+                out.writeInt(checkpoint.totalMessageCount);
+            }
+        }
+
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,201 @@
+package service;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * 카카오톡 내보내기 여러 개를 한 번에 파싱 (CSV 파일 / 폴더 / ZIP)
+ * - 폴더는 하위 폴더까지 *.csv, *.zip 을 찾음
+ * - ZIP은 압축을 풀지 않고 항목을 스트림으로 바로 파싱
+ *   (디스크의 ZIP은 ZipFile로 항목마다 따로 열어 병렬로, ZIP 안의 ZIP은 ZipInputStream으로 순서대로)
+ * - 대화(CSV) 하나가 작업 하나, 코어 수만큼의 작업 스레드에서 동시에 파싱
+ */
+public class KakaoArchiveImporter {
+
+    // 파싱된 대화 하나
+    public static class Conversation {
+        private final String source; // 파일 경로 또는 "archive.zip!/항목"
+        private final KakaoParser.ParseResult result;
+
+        Conversation(String source, KakaoParser.ParseResult result) {
+            this.source = source;
+            this.result = result;
+        }
+
+        public String getSource() { return source; }
+        public KakaoParser.ParseResult getResult() { return result; }
+    }
+
+    // 하나의 파싱 작업 → 대화들 (ZIP 항목은 열린 ZipFile에서 읽으므로 모든 작업이 끝날 때까지 닫지 않음)
+    private interface Source {
+        List<Conversation> parse() throws Exception;
+    }
+
+    /**
+     * 입력 전체를 파싱 (읽을 수 없는 항목은 건너뜀)
+     * @param inputs CSV 파일, ZIP 파일, 폴더
+     * @return 메시지가 있는 대화들 (입력 순서)
+     */
+    public static List<Conversation> parseAll(List<File> inputs, BulkAnalyzer.ProgressListener listener) throws Exception {
+        List<ZipFile> openArchives = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "kakao-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            Map<String, Source> sources = new LinkedHashMap<>();
+            for (File input : inputs) {
+                collect(input, sources, openArchives);
+            }
+            System.out.println("📦 대화 " + sources.size() + "개 파싱 시작 (작업 스레드 "
+                + Runtime.getRuntime().availableProcessors() + "개)");
+
+            AtomicInteger completed = new AtomicInteger();
+            List<Future<List<Conversation>>> futures = new ArrayList<>();
+            for (Map.Entry<String, Source> source : sources.entrySet()) {
+                futures.add(pool.submit(() -> {
+                    try {
+                        return source.getValue().parse();
+                    } catch (Exception e) {
+                        System.err.println("⚠️ 대화 파싱 실패 (" + source.getKey() + "): " + e.getMessage());
+                        return Collections.<Conversation>emptyList();
+                    } finally {
+                        if (listener != null) {
+                            listener.onProgress(completed.incrementAndGet(), sources.size());
+                        }
+                    }
+                }));
+            }
+
+            List<Conversation> conversations = new ArrayList<>();
+            for (Future<List<Conversation>> future : futures) {
+                for (Conversation conversation : future.get()) {
+                    if (conversation.getResult().getTotalMessageCount() > 0) {
+                        conversations.add(conversation);
+                    }
+                }
+            }
+            System.out.println("✅ 대화 " + conversations.size() + "개 파싱 완료");
+            return conversations;
+
+        } finally {
+            pool.shutdownNow();
+            for (ZipFile archive : openArchives) {
+                try {
+                    archive.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * 여러 대화에 가장 많이 등장하는 참여자 ('나'의 추정값)
+     */
+    public static String guessMe(List<Conversation> conversations) {
+        Map<String, Integer> appearances = new HashMap<>();
+        for (Conversation conversation : conversations) {
+            for (String name : conversation.getResult().getParticipantStats().getNames()) {
+                appearances.merge(name, 1, Integer::sum);
+            }
+        }
+        return appearances.entrySet().stream()
+            .max(Map.Entry.comparingByValue())
+            .map(Map.Entry::getKey)
+            .orElse(null);
+    }
+
+    // ========== 입력 수집 ==========
+
+    // 🔧 읽을 수 없는 입력 (손상된 ZIP, 열 수 없는 폴더 등)은 경고만 남기고 건너뜀
+    private static void collect(File input, Map<String, Source> sources, List<ZipFile> openArchives) {
+        try {
+            collectOrThrow(input, sources, openArchives);
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("⚠️ 읽을 수 없어 건너뜀 (" + input.getPath() + "): " + e.getMessage());
+        }
+    }
+
+    private static void collectOrThrow(File input, Map<String, Source> sources, List<ZipFile> openArchives) throws IOException {
+        if (input.isDirectory()) {
+            List<Path> files;
+            try (Stream<Path> walk = Files.walk(input.toPath())) {
+                files = walk.filter(Files::isRegularFile)
+                    .filter(path -> isCsv(path.toString()) || isZip(path.toString()))
+                    .sorted()
+                    .collect(Collectors.toList());
+            }
+            for (Path path : files) {
+                collect(path.toFile(), sources, openArchives);
+            }
+
+        } else if (isZip(input.getName())) {
+            ZipFile archive = new ZipFile(input);
+            openArchives.add(archive);
+            Enumeration<? extends ZipEntry> entries = archive.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = input.getPath() + "!/" + entry.getName();
+                if (entry.isDirectory() || isHidden(entry.getName())) {
+                    continue;
+                }
+                if (isCsv(entry.getName())) {
+                    sources.put(name, () -> Collections.singletonList(
+                        new Conversation(name, KakaoParser.parseCSV(archive.getInputStream(entry)))));
+                } else if (isZip(entry.getName())) {
+                    sources.put(name, () -> parseNested(name, archive.getInputStream(entry)));
+                }
+            }
+
+        } else if (isCsv(input.getName())) {
+            sources.put(input.getPath(), () -> Collections.singletonList(
+                new Conversation(input.getPath(), KakaoParser.parseCSVParallel(input))));
+        }
+    }
+
+    // ZIP 안의 ZIP: 앞에서부터 순서대로만 읽을 수 있으므로 안의 CSV들은 이 작업에서 차례로 파싱
+    private static List<Conversation> parseNested(String name, InputStream in) throws Exception {
+        List<Conversation> conversations = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(in)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.isDirectory() || isHidden(entry.getName()) || !isCsv(entry.getName())) {
+                    continue;
+                }
+                // 파서가 다 읽고 닫아도 ZIP 스트림은 다음 항목을 위해 열어 둠
+                InputStream entryStream = new FilterInputStream(zip) {
+                    @Override
+                    public void close() {
+                    }
+                };
+                String entryName = name + "!/" + entry.getName();
+                conversations.add(new Conversation(entryName, KakaoParser.parseCSV(entryStream)));
+            }
+        }
+        return conversations;
+    }
+
+    private static boolean isCsv(String name) {
+        return name.toLowerCase().endsWith(".csv");
+    }
+
+    private static boolean isZip(String name) {
+        return name.toLowerCase().endsWith(".zip");
+    }
+
+    // macOS 압축 부산물 (__MACOSX/, ._파일)
+    private static boolean isHidden(String entryName) {
+        String fileName = entryName.substring(entryName.lastIndexOf('/') + 1);
+        return entryName.startsWith("__MACOSX/") || fileName.startsWith(".");
+    }
+}
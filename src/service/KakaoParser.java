@@ -3,52 +3,129 @@ package service;
 import model.Message;
 import model.MBTI;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 public class KakaoParser {
+    // 🆕 이 크기 이상이면 parseCSVParallel이 파일을 나눠서 병렬 파싱
+    private static final long PARALLEL_THRESHOLD = 4L * 1024 * 1024;
+    private static final int MIN_CHUNK_SIZE = 1024 * 1024;
+    // 🆕 증분 가져오기 때 맥락용으로 다시 읽는 최근 레코드 수
+    private static final int CHECKPOINT_CONTEXT_RECORDS = 50;
+    // 🆕 끝에서부터 읽기: 창을 넓히는 최대 레코드 수 / 참여자 표본으로 읽는 파일 앞부분 크기
+    private static final int TAIL_MAX_RECORDS = 5000;
+    private static final int PREFIX_SAMPLE_BYTES = 64 * 1024;
+    // 🆕 레코드 시작을 뒤에서부터 찾을 때 한 번에 매핑하는 크기
+    private static final int BACKWARD_SCAN_BYTES = 64 * 1024;
     
     // 카카오톡 CSV 파싱 결과
     public static class ParseResult {
         private List<KakaoMessage> messages;
-        private Map<String, Integer> userMessageCount;
+        private ParticipantStats participants; // 🆕 참여자별 통계 (메시지 수, 기간, 평균 길이, 시간대)
         private String mainUser; // 가장 많이 말한 사람 (나)
         private String otherUser; // 상대방
+        private int totalMessageCount = 0; // 🆕 스트리밍 파싱에서는 messages가 비어 있으므로 따로 셈
+        private int newMessageCount = 0; // 🆕 증분 파싱에서 이번에 새로 읽은 메시지 수
+        private boolean resumed = false;
+        private ImportCheckpoints.Checkpoint checkpoint; // 🆕 가져오기가 끝나면 저장할 체크포인트
         
         public ParseResult() {
             this.messages = new ArrayList<>();
-            this.userMessageCount = new HashMap<>();
+            this.participants = new ParticipantStats();
         }
         
         public void addMessage(KakaoMessage msg) {
             messages.add(msg);
-            userMessageCount.put(msg.getUser(), 
-                userMessageCount.getOrDefault(msg.getUser(), 0) + 1);
+            countMessage(msg);
         }
         
+        // 🆕 메시지는 보관하지 않고 참여자별 통계만 집계
+        private void countMessage(KakaoMessage msg) {
+            participants.add(msg);
+            totalMessageCount++;
+            newMessageCount++;
+        }
+        
+        // 🆕 체크포인트의 누적 통계에서 이어서 집계
+        private void resumeFrom(ImportCheckpoints.Checkpoint previous) {
+            participants = previous.getParticipantStats().copy();
+            totalMessageCount = previous.getTotalMessageCount();
+            resumed = true;
+        }
+        
+        // 🆕 병렬 파싱 결과 합치기 (조각별 통계를 더함)
+        private void addChunk(List<KakaoMessage> chunkMessages, ParticipantStats chunkStats) {
+            messages.addAll(chunkMessages);
+            participants.merge(chunkStats);
+            totalMessageCount += chunkMessages.size();
+        }
+        
+        // 🔧 메시지 수 상위 두 명 (정렬 없이)
         public void calculateMainUsers() {
-            if (userMessageCount.isEmpty()) return;
-            
-            // 메시지 수로 정렬
-            List<Map.Entry<String, Integer>> sorted = new ArrayList<>(userMessageCount.entrySet());
-            sorted.sort((a, b) -> b.getValue().compareTo(a.getValue()));
-            
-            if (sorted.size() >= 2) {
-                mainUser = sorted.get(0).getKey();
-                otherUser = sorted.get(1).getKey();
-            } else if (sorted.size() == 1) {
-                mainUser = sorted.get(0).getKey();
+            List<String> top = participants.top(2);
+            if (top.size() >= 2) {
+                mainUser = top.get(0);
+                otherUser = top.get(1);
+            } else if (top.size() == 1) {
+                mainUser = top.get(0);
                 otherUser = mainUser;
             }
         }
         
+        // 🆕 단체방 여부 (세 명 이상)
+        public boolean isGroupChat() {
+            return participants.size() > 2;
+        }
+        
         public List<KakaoMessage> getMessages() { return messages; }
         public String getMainUser() { return mainUser; }
         public String getOtherUser() { return otherUser; }
-        public Map<String, Integer> getUserMessageCount() { return userMessageCount; }
-        public int getTotalMessageCount() { return messages.size(); }
+        public Map<String, Integer> getUserMessageCount() { return participants.toCountMap(); }
+        public ParticipantStats getParticipantStats() { return participants; }
+        public List<ParticipantStats.Participant> getParticipants() { return participants.getParticipants(); }
+        public int getTotalMessageCount() { return totalMessageCount; }
+        public int getNewMessageCount() { return newMessageCount; }
+        public boolean isResumed() { return resumed; }
+        public ImportCheckpoints.Checkpoint getCheckpoint() { return checkpoint; }
+    }
+    
+    /**
+     * 🆕 스트리밍 파싱용: 최근 N개 메시지와 참여자별 마지막 메시지만 보관
+     * (대화 전체를 메모리에 올리지 않고 맥락 분석에 필요한 부분만)
+     */
+    public static class ConversationTail implements Consumer<KakaoMessage> {
+        private final int capacity;
+        private final ArrayDeque<KakaoMessage> window;
+        private final Map<String, KakaoMessage> lastByUser = new HashMap<>();
+        
+        public ConversationTail(int capacity) {
+            this.capacity = capacity;
+            this.window = new ArrayDeque<>(capacity);
+        }
+        
+        @Override
+        public void accept(KakaoMessage msg) {
+            if (window.size() == capacity) {
+                window.pollFirst();
+            }
+            window.addLast(msg);
+            lastByUser.put(msg.getUser(), msg);
+        }
+        
+        // 최근 메시지 (시간 순서)
+        public List<KakaoMessage> getMessages() { return new ArrayList<>(window); }
+        public KakaoMessage getLastMessageFrom(String user) { return lastByUser.get(user); }
     }
     
     // 카카오톡 메시지
@@ -69,9 +146,9 @@ public class KakaoParser {
         
         @Override
         public String toString() {
-            return String.format("[%s] %s: %s", 
-                dateTime.format(DateTimeFormatter.ofPattern("MM-dd HH:mm")),
-                user, message);
+            StringBuilder sb = new StringBuilder("[");
+            ConversationWindow.appendShortTimestamp(dateTime, sb);
+            return sb.append("] ").append(user).append(": ").append(message).toString();
         }
     }
     
@@ -82,139 +159,533 @@ public class KakaoParser {
      */
     public static ParseResult parseCSV(File file) throws Exception {
         ParseResult result = new ParseResult();
-        
-        try (BufferedReader reader = new BufferedReader(
-            new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+        parseCSV(file, result, result.messages::add);
+        return result;
+    }
+    
+    /**
+     * 🆕 스트리밍 파싱: 메시지를 모으지 않고 한 줄씩 consumer에 전달 (메모리 사용량 일정)
+     * 참여자별 메시지 수는 같은 읽기에서 집계
+     * @return 참여자 통계만 담긴 결과 (getMessages()는 비어 있음)
+     */
+    public static ParseResult parseCSV(File file, Consumer<KakaoMessage> consumer) throws Exception {
+        ParseResult result = new ParseResult();
+        parseCSV(file, result, consumer);
+        return result;
+    }
+    
+    /**
+     * 🆕 스트림에서 파싱 (ZIP 안의 CSV 등, 임시 파일 없이) - 다 읽으면 스트림을 닫음
+     */
+    public static ParseResult parseCSV(InputStream in) throws Exception {
+        ParseResult result = new ParseResult();
+        parseCSV(in, result, result.messages::add);
+        return result;
+    }
+    
+    private static void parseCSV(File file, ParseResult result, Consumer<KakaoMessage> consumer) throws Exception {
+        parseCSV(new FileInputStream(file), result, consumer);
+    }
+    
+    private static void parseCSV(InputStream in, ParseResult result, Consumer<KakaoMessage> consumer) throws Exception {
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            // 🆕 커서 방식 토크나이저 (따옴표 안 줄바꿈 / "" 이스케이프 처리)
+            CsvTokenizer tokenizer = new CsvTokenizer(reader);
+            TimestampDecoder dates = new TimestampDecoder();
             
-            String line;
-            boolean isFirstLine = true;
-            int lineNumber = 0;
+            // 첫 레코드 (헤더, BOM 포함) 스킵
+            tokenizer.next();
             
-            while ((line = reader.readLine()) != null) {
-                lineNumber++;
-                
-                // 첫 줄 (헤더) 스킵
-                if (isFirstLine) {
-                    isFirstLine = false;
-                    // BOM 제거
-                    if (line.startsWith("\uFEFF")) {
-                        line = line.substring(1);
-                    }
-                    continue;
-                }
-                
+            while (tokenizer.next()) {
+                KakaoMessage msg;
                 try {
-                    KakaoMessage msg = parseLine(line);
-                    if (msg != null) {
-                        result.addMessage(msg);
-                    }
+                    msg = parseRecord(tokenizer, dates);
                 } catch (Exception e) {
-                    System.err.println("⚠️ " + lineNumber + "번째 줄 파싱 실패: " + e.getMessage());
+                    System.err.println("⚠️ " + tokenizer.getLineNumber() + "번째 줄 파싱 실패: " + e.getMessage());
                     // 에러 나도 계속 진행
+                    continue;
+                }
+                
+                if (msg != null) {
+                    result.countMessage(msg);
+                    consumer.accept(msg);
                 }
             }
             
             result.calculateMainUsers();
+            printSummary(result);
+        }
+    }
+    
+    // ========== 🆕 끝에서부터 읽기 ==========
+    
+    /**
+     * 파일 끝에서 최근 windowSize개 레코드만 파싱 (대화 전체 크기와 무관하게 빠름)
+     * - 참여자는 창 안에서 찾고, 창 안에 한 명뿐이면 파일 앞부분 일부를 표본으로 읽어 보충 (개수 0)
+     * - 참여자의 마지막 메시지가 창에 없으면 창을 넓혀 다시 읽음 (최대 TAIL_MAX_RECORDS개)
+     * @return 읽은 메시지(getMessages, 시간 순서)와 그 안의 참여자별 개수
+     */
+    public static ParseResult parseCSVTail(File file, int windowSize) throws Exception {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
             
-            System.out.println("✅ CSV 파싱 완료:");
-            System.out.println("  - 총 메시지: " + result.getTotalMessageCount() + "개");
-            System.out.println("  - 사용자: " + result.getUserMessageCount().keySet());
-            if (result.getMainUser() != null) {
-                System.out.println("  - 주 사용자 (나): " + result.getMainUser());
-                System.out.println("  - 상대방: " + result.getOtherUser());
+            Set<String> sampled = Collections.emptySet();
+            int records = windowSize;
+            ChunkResult window;
+            while (true) {
+                long start = findRecordStart(channel, size, records);
+                window = parseRegion(channel, start, size);
+                
+                if (window.participants.size() < 2 && sampled.isEmpty()) {
+                    sampled = sampleParticipants(channel, Math.min(size, start));
+                }
+                
+                // 모든 참여자의 마지막 메시지가 창 안에 있거나 더 넓힐 수 없으면 끝
+                Set<String> missing = new HashSet<>(sampled);
+                missing.removeAll(window.participants.getNames());
+                if (missing.isEmpty() || start == 0 || records >= TAIL_MAX_RECORDS) {
+                    break;
+                }
+                records = Math.min(records * 4, TAIL_MAX_RECORDS);
+            }
+            
+            ParseResult result = new ParseResult();
+            result.addChunk(window.messages, window.participants);
+            for (String user : sampled) {
+                result.participants.intern(user); // 창 밖 참여자 (메시지 0개)
             }
+            result.calculateMainUsers();
             
+            System.out.println("✅ 최근 대화 읽기 완료: " + result.getTotalMessageCount() + "개 메시지, 참여자 "
+                + result.getParticipantStats().getNames());
+            return result;
         }
-        
-        return result;
     }
     
+    // [start, end) 구간 파싱 (start가 0이면 헤더 다음부터)
+    private static ChunkResult parseRegion(FileChannel channel, long start, long end) throws IOException {
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        int from = start == 0 ? nextRecordStart(buffer, 0, buffer.limit(), false) : 0;
+        return parseChunk(buffer, from, buffer.limit());
+    }
+    
+    // 파일 앞부분 표본의 참여자 (end 이전, 마지막 완전한 레코드까지만)
+    private static Set<String> sampleParticipants(FileChannel channel, long end) throws IOException {
+        int sampleEnd = (int) Math.min(end, PREFIX_SAMPLE_BYTES);
+        if (sampleEnd < end) {
+            // 🔧 표본 끝은 레코드 경계가 아니므로 파일 앞에서부터 따옴표 상태를 따라가며 마지막 경계를 찾음
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, sampleEnd);
+            int last = 0;
+            for (int next = nextRecordStart(buffer, 0, sampleEnd, false); next < sampleEnd;
+                 next = nextRecordStart(buffer, next, sampleEnd, false)) {
+                last = next;
+            }
+            sampleEnd = last;
+        }
+        if (sampleEnd <= 0) {
+            return Collections.emptySet();
+        }
+        return new HashSet<>(parseRegion(channel, 0, sampleEnd).participants.getNames());
+    }
+    
+    // ========== 🆕 증분 가져오기 ==========
+    
     /**
-     * CSV 한 줄 파싱
-     * 예: 2025-04-04 17:48:56,"윤정우","메시지 내용"
+     * 증분 파싱: 이전에 가져온 대화를 다시 내보낸 파일이면 지난번 끝 근처부터만 파싱
+     * - consumer에는 맥락용으로 다시 읽은 최근 레코드(이미 가져온 것)와 새 메시지가 순서대로 전달
+     * - 참여자별 개수는 체크포인트의 누적 값 + 새 메시지 (getNewMessageCount = 새 메시지 수)
+     * - 이어지는 파일이 아니면 (해시/시각 불일치) 처음부터 파싱
+     * 가져오기가 끝나면 결과의 getCheckpoint()를 ImportCheckpoints.save로 저장
      */
-    private static KakaoMessage parseLine(String line) throws Exception {
-        if (line == null || line.trim().isEmpty()) {
-            return null;
+    public static ParseResult parseCSVIncremental(File file, ImportCheckpoints checkpoints,
+                                                  Consumer<KakaoMessage> consumer) throws Exception {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ImportCheckpoints.Checkpoint previous = checkpoints.findFor(channel);
+            
+            ParseResult result = null;
+            LocalDateTime[] lastTimestamp = { null };
+            if (previous != null) {
+                result = resume(channel, previous, consumer, lastTimestamp);
+                if (result == null) {
+                    System.out.println("⚠️ 이전 가져오기와 이어지지 않는 파일입니다. 처음부터 파싱합니다.");
+                    previous = null;
+                }
+            }
+            if (result == null) {
+                ParseResult full = new ParseResult();
+                parseCSV(file, full, msg -> {
+                    lastTimestamp[0] = msg.getDateTime();
+                    consumer.accept(msg);
+                });
+                result = full;
+            } else {
+                result.calculateMainUsers();
+                printSummary(result);
+                System.out.println("  - 이어서 가져오기: 새 메시지 " + result.getNewMessageCount() + "개");
+            }
+            
+            result.checkpoint = createCheckpoint(channel, result, lastTimestamp[0], previous);
+            return result;
         }
+    }
+    
+    /**
+     * 체크포인트의 맥락 위치부터 파싱
+     * @return 이어지는 파일이 아니면 null (이 경우 consumer는 호출되지 않음)
+     */
+    private static ParseResult resume(FileChannel channel, ImportCheckpoints.Checkpoint previous,
+                                      Consumer<KakaoMessage> consumer, LocalDateTime[] lastTimestamp) throws IOException {
+        ParseResult result = new ParseResult();
+        result.resumeFrom(previous);
+        lastTimestamp[0] = previous.getLastTimestamp();
         
-        // CSV 파싱 (큰따옴표 안의 쉼표는 무시)
-        List<String> fields = parseCSVLine(line);
-        
-        if (fields.size() < 3) {
-            throw new Exception("필드 부족: " + fields.size());
+        channel.position(previous.getContextOffset());
+        Reader reader = new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8);
+        CsvTokenizer tokenizer = new CsvTokenizer(reader);
+        TimestampDecoder dates = new TimestampDecoder();
+        if (previous.getContextOffset() == 0) {
+            tokenizer.next(); // 헤더
         }
         
-        // Date 파싱
-        String dateStr = fields.get(0).trim();
-        LocalDateTime dateTime = parseDateTime(dateStr);
+        // 맥락 레코드는 첫 새 메시지의 시각을 확인할 때까지 모아 두었다가 전달
+        List<KakaoMessage> context = new ArrayList<>();
+        boolean verified = false;
+        int record = 0;
         
-        // User 파싱
-        String user = fields.get(1).trim();
+        while (tokenizer.next()) {
+            boolean isNew = record++ >= previous.getContextRecordCount();
+            KakaoMessage msg;
+            try {
+                msg = parseRecord(tokenizer, dates);
+            } catch (Exception e) {
+                if (isNew) {
+                    System.err.println("⚠️ 이어서 가져오기 중 레코드 파싱 실패: " + e.getMessage());
+                }
+                continue;
+            }
+            if (msg == null) {
+                continue;
+            }
+            
+            if (!isNew) {
+                context.add(msg);
+                continue;
+            }
+            
+            if (!verified) {
+                if (msg.getDateTime().isBefore(previous.getLastTimestamp())) {
+                    return null;
+                }
+                context.forEach(consumer);
+                verified = true;
+            }
+            result.countMessage(msg);
+            lastTimestamp[0] = msg.getDateTime();
+            consumer.accept(msg);
+        }
         
-        // Message 파싱 (나머지 전부)
-        StringBuilder message = new StringBuilder();
-        for (int i = 2; i < fields.size(); i++) {
-            if (i > 2) message.append(",");
-            message.append(fields.get(i));
+        if (!verified) {
+            context.forEach(consumer); // 새 메시지 없음
+        }
+        return result;
+    }
+    
+    // 다음 가져오기를 위한 체크포인트 (메시지가 없으면 null)
+    private static ImportCheckpoints.Checkpoint createCheckpoint(FileChannel channel, ParseResult result,
+                                                                 LocalDateTime lastTimestamp,
+                                                                 ImportCheckpoints.Checkpoint previous) throws IOException {
+        if (result.getTotalMessageCount() == 0 || lastTimestamp == null) {
+            return null;
         }
         
-        String messageText = message.toString().trim();
+        long endOffset = channel.size();
+        long contextOffset = findRecordStart(channel, endOffset, CHECKPOINT_CONTEXT_RECORDS);
         
-        // 빈 메시지 필터링
-        if (messageText.isEmpty() || messageText.equals("삭제된 메시지입니다.")) {
-            return null;
+        // [contextOffset, endOffset) 의 레코드 수 (다음번에 맥락과 새 메시지를 나누는 기준)
+        channel.position(contextOffset);
+        CsvTokenizer tokenizer = new CsvTokenizer(
+            new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+        if (contextOffset == 0) {
+            tokenizer.next(); // 헤더
+        }
+        int contextRecordCount = 0;
+        while (tokenizer.next()) {
+            contextRecordCount++;
         }
         
-        return new KakaoMessage(dateTime, user, messageText);
+        ImportCheckpoints.Checkpoint checkpoint = new ImportCheckpoints.Checkpoint(
+            ImportCheckpoints.participantsKey(result.getParticipantStats().getNames()),
+            endOffset, contextOffset, contextRecordCount,
+            ImportCheckpoints.hashRange(channel, endOffset), lastTimestamp,
+            result.getParticipantStats(), result.getTotalMessageCount());
+        if (previous != null) {
+            checkpoint.setReplacesKey(previous.getParticipantsKey());
+        }
+        return checkpoint;
     }
     
     /**
-     * CSV 라인 파싱 (큰따옴표 처리)
+     * before 앞쪽으로 records번째 레코드의 시작 위치 (뒤에서부터 찾음)
+     * before는 파일 끝이나 레코드 시작이어야 함 (따옴표 밖)
+     * 레코드 시작 = 따옴표 밖의 줄바꿈 다음에 "yyyy-MM-dd " 날짜가 오는 곳
+     * (🔧 메시지 안에서 줄바꿈 뒤에 날짜를 쓴 경우와 구분하려고 parseCSVParallel처럼 큰따옴표 수로 판단)
+     * 파일 앞까지 가도 부족하면 0 (헤더부터)
      */
-    private static List<String> parseCSVLine(String line) {
-        List<String> fields = new ArrayList<>();
-        StringBuilder current = new StringBuilder();
+    static long findRecordStart(FileChannel channel, long before, int records) throws IOException {
+        int found = 0;
         boolean inQuotes = false;
+        long end = before;
+        while (end > 0) {
+            // [from, end)를 뒤에서부터 훑고, 날짜 확인용으로 뒤쪽 몇 바이트를 더 매핑
+            long from = Math.max(0, end - BACKWARD_SCAN_BYTES);
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(before, end + 11) - from);
+            
+            for (int i = (int) (end - from) - 1; i >= 0; i--) {
+                byte b = buffer.get(i);
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (b == '\n' && !inQuotes && from + i + 1 < before
+                        && isDatePrefix(buffer, i + 1) && ++found == records) {
+                    return from + i + 1;
+                }
+            }
+            end = from;
+        }
+        return 0;
+    }
+    
+    private static boolean isDatePrefix(ByteBuffer buffer, int i) {
+        if (i + 11 > buffer.limit()) {
+            return false;
+        }
+        for (int k = 0; k < 10; k++) {
+            byte b = buffer.get(i + k);
+            boolean ok = k == 4 || k == 7 ? b == '-' : b >= '0' && b <= '9';
+            if (!ok) {
+                return false;
+            }
+        }
+        return buffer.get(i + 10) == ' ';
+    }
+    
+    private static void printSummary(ParseResult result) {
+        System.out.println("✅ CSV 파싱 완료:");
+        System.out.println("  - 총 메시지: " + result.getTotalMessageCount() + "개");
+        System.out.println("  - 사용자: " + result.getParticipantStats().getNames());
+        if (result.getMainUser() != null) {
+            System.out.println("  - 주 사용자 (나): " + result.getMainUser());
+            System.out.println("  - 상대방: " + result.getOtherUser());
+        }
+    }
+    
+    // ========== 🆕 병렬 파싱 ==========
+    
+    /**
+     * 큰 CSV 파일을 메모리 매핑해서 여러 조각으로 나눠 ForkJoin 풀에서 병렬 파싱
+     * - 조각 경계는 큰따옴표 밖의 줄바꿈에서만 (메시지 안의 줄바꿈에서 자르지 않음)
+     * - 결과는 시간 순서로 합치고 참여자별 개수는 조각별로 센 값을 더함
+     * 작은 파일(4MB 미만)이나 2GB 이상 파일은 parseCSV와 같은 순차 파싱
+     */
+    public static ParseResult parseCSVParallel(File file) throws Exception {
+        long size = file.length();
+        if (size < PARALLEL_THRESHOLD || size > Integer.MAX_VALUE) {
+            return parseCSV(file);
+        }
         
-        for (int i = 0; i < line.length(); i++) {
-            char c = line.charAt(i);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            ForkJoinPool pool = ForkJoinPool.commonPool();
+            
+            int chunkCount = (int) Math.max(1, Math.min(pool.getParallelism() * 4L, size / MIN_CHUNK_SIZE));
+            int[] starts = findChunkStarts(buffer, (int) size, chunkCount);
             
-            if (c == '"') {
+            ChunkResult merged = pool.invoke(new ChunkTask(buffer, starts, 0, starts.length - 1));
+            
+            // 조각은 파일 순서대로 합쳐졌으므로 안정 정렬로 시간 순서 보장 (보통 이미 정렬되어 있음)
+            merged.messages.sort(Comparator.comparing(KakaoMessage::getDateTime));
+            
+            ParseResult result = new ParseResult();
+            result.addChunk(merged.messages, merged.participants);
+            result.calculateMainUsers();
+            printSummary(result);
+            System.out.println("  - 병렬 파싱: " + (starts.length - 1) + "개 조각");
+            return result;
+        }
+    }
+    
+    /**
+     * 조각 시작 위치 계산 (마지막 원소 = 파일 끝)
+     * 1. 균등하게 나눈 구간마다 큰따옴표 수를 병렬로 세고
+     * 2. 앞 구간들의 합으로 각 구간 시작이 따옴표 안인지 판단한 뒤
+     * 3. 따옴표 밖의 첫 줄바꿈 다음으로 시작을 옮김
+     */
+    private static int[] findChunkStarts(ByteBuffer buffer, int size, int chunkCount) {
+        int[] rawStarts = new int[chunkCount + 1];
+        for (int i = 0; i <= chunkCount; i++) {
+            rawStarts[i] = (int) ((long) size * i / chunkCount);
+        }
+        
+        int[] quoteCounts = IntStream.range(0, chunkCount).parallel()
+            .map(i -> countQuotes(buffer, rawStarts[i], rawStarts[i + 1]))
+            .toArray();
+        
+        List<Integer> starts = new ArrayList<>();
+        boolean inQuotes = false;
+        int previous = -1;
+        for (int i = 0; i < chunkCount; i++) {
+            // 첫 조각은 헤더 줄 다음부터
+            int start = nextRecordStart(buffer, rawStarts[i], size, inQuotes);
+            if (start > previous && start < size) {
+                starts.add(start);
+                previous = start;
+            }
+            inQuotes ^= (quoteCounts[i] & 1) == 1;
+        }
+        starts.add(size);
+        
+        return starts.stream().mapToInt(Integer::intValue).toArray();
+    }
+    
+    private static int countQuotes(ByteBuffer buffer, int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == '"') {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    // from 위치의 따옴표 상태에서 시작해 따옴표 밖 줄바꿈 다음 위치
+    private static int nextRecordStart(ByteBuffer buffer, int from, int size, boolean inQuotes) {
+        for (int i = from; i < size; i++) {
+            byte b = buffer.get(i);
+            if (b == '"') {
                 inQuotes = !inQuotes;
-            } else if (c == ',' && !inQuotes) {
-                fields.add(current.toString());
-                current = new StringBuilder();
-            } else {
-                current.append(c);
+            } else if (b == '\n' && !inQuotes) {
+                return i + 1;
             }
         }
+        return size;
+    }
+    
+    private static class ChunkResult {
+        final List<KakaoMessage> messages;
+        final ParticipantStats participants;
         
-        fields.add(current.toString());
-        return fields;
+        ChunkResult(List<KakaoMessage> messages, ParticipantStats participants) {
+            this.messages = messages;
+            this.participants = participants;
+        }
+    }
+    
+    // 조각 범위를 반으로 나눠 파싱하고 파일 순서대로 합침
+    private static class ChunkTask extends RecursiveTask<ChunkResult> {
+        private static final long serialVersionUID = 1L;
+        private final ByteBuffer buffer;
+        private final int[] starts;
+        private final int from;
+        private final int to;
+        
+        ChunkTask(ByteBuffer buffer, int[] starts, int from, int to) {
+            this.buffer = buffer;
+            this.starts = starts;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected ChunkResult compute() {
+            if (to - from == 1) {
+                return parseChunk(buffer, starts[from], starts[to]);
+            }
+            
+            int mid = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(buffer, starts, from, mid);
+            left.fork();
+            ChunkResult right = new ChunkTask(buffer, starts, mid, to).compute();
+            ChunkResult merged = left.join();
+            
+            merged.messages.addAll(right.messages);
+            merged.participants.merge(right.participants);
+            return merged;
+        }
+    }
+    
+    // [start, end) 바이트 구간의 레코드 파싱 (경계가 줄바꿈이므로 UTF-8 문자가 잘리지 않음)
+    private static ChunkResult parseChunk(ByteBuffer buffer, int start, int end) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit(end).position(start);
+        CharBuffer chars = StandardCharsets.UTF_8.decode(slice);
+        CsvTokenizer tokenizer = new CsvTokenizer(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+        TimestampDecoder dates = new TimestampDecoder();
+        
+        List<KakaoMessage> messages = new ArrayList<>();
+        ParticipantStats participants = new ParticipantStats();
+        
+        try {
+            while (tokenizer.next()) {
+                try {
+                    KakaoMessage msg = parseRecord(tokenizer, dates);
+                    if (msg != null) {
+                        messages.add(msg);
+                        participants.add(msg);
+                    }
+                } catch (Exception e) {
+                    System.err.println("⚠️ " + start + "바이트 위치 조각의 " + tokenizer.getLineNumber()
+                        + "번째 줄 파싱 실패: " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // 메모리 버퍼만 읽으므로 발생하지 않음
+        }
+        
+        return new ChunkResult(messages, participants);
     }
     
     /**
-     * 날짜 파싱
-     * 지원 형식:
-     * - 2025-04-04 17:48:56
-     * - 2025-04-04 오후 5:48:56
+     * 🔧 토크나이저의 현재 레코드를 메시지로 변환 (필요한 필드 문자열만 생성)
+     * 예: 2025-04-04 17:48:56,"윤정우","메시지 내용"
      */
-    private static LocalDateTime parseDateTime(String dateStr) {
-        try {
-            // 기본 형식
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-            return LocalDateTime.parse(dateStr, formatter);
-        } catch (Exception e) {
-            // 오전/오후 형식 시도
-            try {
-                dateStr = dateStr.replace("오전", "AM").replace("오후", "PM");
-                DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd a h:mm:ss", Locale.ENGLISH);
-                return LocalDateTime.parse(dateStr, formatter);
-            } catch (Exception e2) {
-                throw new RuntimeException("날짜 파싱 실패: " + dateStr);
+    private static KakaoMessage parseRecord(CsvTokenizer tokenizer, TimestampDecoder dates) throws Exception {
+        if (tokenizer.isBlankRecord()) {
+            return null;
+        }
+        
+        int fieldCount = tokenizer.getFieldCount();
+        if (fieldCount < 3) {
+            throw new Exception("필드 부족: " + fieldCount);
+        }
+        
+        // Date 파싱 (🔧 형식은 파일마다 한 번 감지, 예외 없이 직접 디코딩)
+        String dateStr = tokenizer.getTrimmedField(0);
+        LocalDateTime dateTime = dates.decode(dateStr);
+        if (dateTime == null) {
+            throw new Exception("날짜 파싱 실패: " + dateStr);
+        }
+        
+        // User 파싱
+        String user = tokenizer.getTrimmedField(1);
+        
+        // Message 파싱 (따옴표 없이 쉼표가 들어간 메시지는 나머지 필드를 다시 이어 붙임)
+        String messageText;
+        if (fieldCount == 3) {
+            messageText = tokenizer.getTrimmedField(2);
+        } else {
+            StringBuilder message = new StringBuilder();
+            for (int i = 2; i < fieldCount; i++) {
+                if (i > 2) message.append(",");
+                message.append(tokenizer.getField(i));
             }
+            messageText = message.toString().trim();
         }
+        
+        // 빈 메시지 필터링
+        if (messageText.isEmpty() || messageText.equals("삭제된 메시지입니다.")) {
+            return null;
+        }
+        
+        return new KakaoMessage(dateTime, user, messageText);
     }
     
     /**
@@ -235,31 +706,9 @@ public class KakaoParser {
      * 🆕 나와 상대방을 명확히 구분
      */
     public static String toConversationContext(List<KakaoMessage> messages, int maxCount, String mainUser, String otherUser) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("최근 대화 내용 (분석 대상은 '상대방'입니다):\n\n");
-        
-        int count = Math.min(messages.size(), maxCount);
-        int startIndex = Math.max(0, messages.size() - count);
-        
-        for (int i = startIndex; i < messages.size(); i++) {
-            KakaoMessage msg = messages.get(i);
-            
-            // 🆕 나와 상대방 명확히 구분
-            String sender;
-            if (msg.getUser().equals(mainUser)) {
-                sender = "나";
-            } else if (msg.getUser().equals(otherUser)) {
-                sender = "상대방";
-            } else {
-                sender = msg.getUser(); // 혹시 다른 사람이 있으면 이름 표시
-            }
-            
-            sb.append(String.format("[%s] %s: %s\n", 
-                msg.getDateTime().format(DateTimeFormatter.ofPattern("MM-dd HH:mm")),
-                sender,
-                msg.getMessage()));
-        }
-        
-        return sb.toString();
+        // 🆕 줄 만들기는 ConversationWindow로 (메시지마다 맥락을 만들 때는 창을 직접 밀면서 사용)
+        ConversationWindow<KakaoMessage> window = ConversationWindow.forKakao(maxCount, mainUser, otherUser);
+        window.pushAll(messages);
+        return window.render();
     }
 }
@@ -0,0 +1,39 @@
+package service;
+
+import java.util.Arrays;
+
+/**
+ * 최근 응답 시간 (밀리초) 기록 → 백분위수
+ * 최근 WINDOW개만 원형 버퍼에 보관하므로 기록은 O(1), 백분위수는 복사해서 정렬 (호출 한 번에 한 번뿐이라 충분)
+ */
+public class LatencyTracker {
+    private static final int WINDOW = 200;
+
+    private final long[] samples = new long[WINDOW];
+    private int size = 0;
+    private int next = 0;
+
+    public synchronized void record(long millis) {
+        samples[next] = millis;
+        next = (next + 1) % WINDOW;
+        size = Math.min(size + 1, WINDOW);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @param percentile 0~1 (0.95 = p95)
+     * @return 기록이 없으면 -1
+     */
+    public synchronized long percentile(double percentile) {
+        if (size == 0) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * size) - 1;
+        return sorted[Math.max(0, Math.min(size - 1, index))];
+    }
+}
@@ -0,0 +1,122 @@
+package service;
+
+import model.Emotion;
+import model.Message;
+
+import java.util.*;
+
+/**
+ * 메시지 기록 저장용 열(column) 단위 컨테이너
+ * - 메시지마다 객체를 두지 않고 기본형 배열에 저장 (시각 long, 감정 byte, 강도 float)
+ * - 상대 이름과 추천 답변은 문자열 풀에 한 번만 두고 id만 저장
+ *   (같은 상대의 메시지 수천 개, generateDefaultResponse의 같은 기본 답변이 모두 하나로)
+ * - get(i)은 그때그때 만든 Message를 반환 (수정해도 기록에는 반영되지 않음)
+ */
+public class MessageHistory {
+    private static final int INITIAL_CAPACITY = 256;
+    private static final Emotion[] EMOTIONS = Emotion.values();
+
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private byte[] emotions = new byte[INITIAL_CAPACITY];
+    private float[] intensities = new float[INITIAL_CAPACITY];
+    private int[] contactIds = new int[INITIAL_CAPACITY];
+    private int[] responseIds = new int[INITIAL_CAPACITY];
+    private String[] contents = new String[INITIAL_CAPACITY];
+    private int size = 0;
+
+    private final StringPool contactNames = new StringPool();
+    private final StringPool responses = new StringPool();
+
+    // 문자열 → id 풀
+    private static class StringPool {
+        private final List<String> values = new ArrayList<>();
+        private final Map<String, Integer> ids = new HashMap<>();
+
+        int intern(String value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = values.size();
+                values.add(value);
+                ids.put(value, id);
+            }
+            return id;
+        }
+
+        String get(int id) {
+            return values.get(id);
+        }
+
+        void clear() {
+            values.clear();
+            ids.clear();
+        }
+    }
+
+    public void add(Message msg) {
+        if (size == timestamps.length) {
+            grow();
+        }
+
+        timestamps[size] = MessageStore.toEpochMillis(msg.getTimestamp());
+        emotions[size] = (byte) msg.getEmotion().ordinal();
+        intensities[size] = (float) msg.getIntensity();
+        contactIds[size] = contactNames.intern(msg.getContactName());
+        responseIds[size] = responses.intern(msg.getRecommendedResponse() != null ? msg.getRecommendedResponse() : "");
+        contents[size] = msg.getContent();
+        size++;
+    }
+
+    private void grow() {
+        int capacity = timestamps.length * 2;
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        emotions = Arrays.copyOf(emotions, capacity);
+        intensities = Arrays.copyOf(intensities, capacity);
+        contactIds = Arrays.copyOf(contactIds, capacity);
+        responseIds = Arrays.copyOf(responseIds, capacity);
+        contents = Arrays.copyOf(contents, capacity);
+    }
+
+    public Message get(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("위치: " + i + ", 크기: " + size);
+        }
+
+        // float → double 변환 오차 제거 (저장소와 같은 소수점 3자리)
+        Message msg = new Message(contents[i], EMOTIONS[emotions[i]],
+            Math.round(intensities[i] * 1000) / 1000.0,
+            responses.get(responseIds[i]), contactNames.get(contactIds[i]));
+        msg.setTimestamp(MessageStore.fromEpochMillis(timestamps[i]));
+        return msg;
+    }
+
+    // [from, to) 구간을 순서대로
+    public List<Message> range(int from, int to) {
+        List<Message> result = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            result.add(get(i));
+        }
+        return result;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getTimestampMillis(int i) { return timestamps[i]; }
+    public Emotion getEmotion(int i) { return EMOTIONS[emotions[i]]; }
+    public String getContactName(int i) { return contactNames.get(contactIds[i]); }
+    public String getContent(int i) { return contents[i]; }
+
+    public void clear() {
+        // 큰 배열은 버리고 처음 크기로
+        timestamps = new long[INITIAL_CAPACITY];
+        emotions = new byte[INITIAL_CAPACITY];
+        intensities = new float[INITIAL_CAPACITY];
+        contactIds = new int[INITIAL_CAPACITY];
+        responseIds = new int[INITIAL_CAPACITY];
+        contents = new String[INITIAL_CAPACITY];
+        size = 0;
+        contactNames.clear();
+        responses.clear();
+    }
+}
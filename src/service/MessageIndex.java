@@ -0,0 +1,75 @@
+package service;
+
+import model.Emotion;
+import model.Message;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * 메시지 기록의 보조 인덱스
+ * - 상대방 이름 → 위치 목록
+ * - 날짜 → 위치 목록
+ * - 감정별 비트맵
+ * 위치는 DataManager의 메시지 기록 안의 순번 (추가 순서대로 증가)
+ */
+public class MessageIndex {
+
+    // int 위치 목록 (boxing 없이 추가 순서대로 저장)
+    public static class PositionList {
+        private int[] positions = new int[8];
+        private int size = 0;
+
+        void add(int position) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size++] = position;
+        }
+
+        public int size() { return size; }
+        public int get(int i) { return positions[i]; }
+    }
+
+    private static final PositionList EMPTY = new PositionList();
+
+    private final Map<String, PositionList> byContact = new HashMap<>();
+    private final Map<LocalDate, PositionList> byDate = new HashMap<>();
+    private final BitSet[] byEmotion = new BitSet[Emotion.values().length];
+
+    public MessageIndex() {
+        for (int i = 0; i < byEmotion.length; i++) {
+            byEmotion[i] = new BitSet();
+        }
+    }
+
+    public void add(int position, Message msg) {
+        byContact.computeIfAbsent(msg.getContactName(), k -> new PositionList()).add(position);
+        byDate.computeIfAbsent(msg.getTimestamp().toLocalDate(), k -> new PositionList()).add(position);
+        byEmotion[msg.getEmotion().ordinal()].set(position);
+    }
+
+    public PositionList getByContact(String contactName) {
+        return byContact.getOrDefault(contactName, EMPTY);
+    }
+
+    public PositionList getByDate(LocalDate date) {
+        return byDate.getOrDefault(date, EMPTY);
+    }
+
+    public BitSet getByEmotion(Emotion emotion) {
+        return byEmotion[emotion.ordinal()];
+    }
+
+    public Set<String> getContactNames() {
+        return byContact.keySet();
+    }
+
+    public void clear() {
+        byContact.clear();
+        byDate.clear();
+        for (BitSet bits : byEmotion) {
+            bits.clear();
+        }
+    }
+}
@@ -0,0 +1,712 @@
+package service;
+
+import model.Emotion;
+import model.Message;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * 메시지 이진 저장소 (세그먼트 로그)
+ *
+ * data/messages/ 아래에 일정 크기의 세그먼트 파일로 나눠 저장
+ *   - MANIFEST: 세그먼트 파일 이름을 순서대로 한 줄씩 (마지막 줄 = 쓰기 중인 활성 세그먼트)
+ *   - 활성 세그먼트만 끝에 추가되고, 가득 차면 봉인(fsync) 후 새 세그먼트로 교체
+ *   - 봉인된 세그먼트는 변경되지 않으며 읽기 전용으로 매핑
+ *   - 백그라운드 압축: 연속된 작은 봉인 세그먼트를 합쳐서 새 세그먼트로 교체 (레코드는 하나도 버리지 않음,
+ *     같은 분에 같은 내용을 두 번 보낸 메시지도 각각 실제 메시지이므로)
+ *
+ * 세그먼트 파일 구조:
+ *   헤더: magic(int) + version(int)
+ *   레코드: [길이 int][시각 long(epoch ms)][감정 byte(ordinal)][강도 float]
+ *          [상대 이름 id int][내용 길이 int + UTF-8][추천답변 길이 int + UTF-8][길이 int]
+ *   길이를 앞뒤에 모두 기록해서 뒤에서부터도 읽을 수 있음
+ *
+ * 상대 이름은 data/message_names.dict 에 한 번만 기록하고 레코드에는 id만 저장
+ *   [길이 short][UTF-8]...  (순서 = id)
+ */
+public class MessageStore implements Closeable {
+    private static final String SEGMENT_DIR = "data/messages";
+    private static final String MANIFEST_FILE = "MANIFEST";
+    private static final String DICT_FILE = "data/message_names.dict";
+
+    // 세그먼트 최대 크기 (시스템 속성 emotion.segmentBytes, 기본 16MB)
+    private static final long SEGMENT_MAX_BYTES = Long.getLong("emotion.segmentBytes", 16L * 1024 * 1024);
+
+    private static final int MAGIC = 0x454D5331; // "EMS1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    // 길이(앞) + 시각 + 감정 + 강도 + 이름 id + 내용 길이 + 답변 길이 + 길이(뒤)
+    private static final int FIXED_RECORD_SIZE = 4 + 8 + 1 + 4 + 4 + 4 + 4 + 4;
+
+    private static final Emotion[] EMOTIONS = Emotion.values();
+
+    // 세그먼트 파일 1개
+    private static class Segment {
+        final int id;
+        final Path path;
+        final FileChannel channel;
+
+        Segment(int id, Path path, FileChannel channel) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+        }
+
+        long size() throws IOException {
+            return channel.size();
+        }
+    }
+
+    /**
+     * 저장소 안의 위치 (세그먼트 id + 바이트 위치)
+     * readTail이 돌려준 위치 이전을 readBefore로 나중에 읽는 용도
+     */
+    public static class Position {
+        private final int segmentId;
+        private final long offset;
+        private final boolean start;
+
+        Position(int segmentId, long offset, boolean start) {
+            this.segmentId = segmentId;
+            this.offset = offset;
+            this.start = start;
+        }
+
+        // 이 위치 앞에 더 읽을 기록이 없는지
+        public boolean isStart() { return start; }
+    }
+
+    private final Path segmentDir;
+    private final Path dictPath;
+    private final List<String> names = new CopyOnWriteArrayList<>(); // readBefore가 잠금 없이 읽음
+    private final Map<String, Integer> nameIds = new HashMap<>();
+    private final List<Segment> segments = new ArrayList<>(); // 마지막 = 활성 세그먼트
+    private FileChannel dictChannel;
+    private int nextSegmentId;
+
+    private boolean compactionEnabled = false;
+    private boolean compacting = false;
+    private long clearGeneration = 0;
+    private Thread compactor;
+
+    public MessageStore() throws IOException {
+        this(Paths.get(SEGMENT_DIR), Paths.get(DICT_FILE));
+    }
+
+    public MessageStore(Path segmentDir, Path dictPath) throws IOException {
+        this.segmentDir = segmentDir;
+        this.dictPath = dictPath;
+
+        Files.createDirectories(segmentDir);
+        loadDictionary();
+        openSegments();
+    }
+
+    public static boolean exists() {
+        return Files.exists(Paths.get(SEGMENT_DIR, MANIFEST_FILE));
+    }
+
+    public synchronized void append(Message msg) throws IOException {
+        append(Collections.singletonList(msg));
+    }
+
+    /**
+     * 여러 메시지를 활성 세그먼트에 한 번의 write로 추가
+     */
+    public synchronized void append(List<Message> messages) throws IOException {
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        List<byte[]> encoded = new ArrayList<>(messages.size() * 2);
+        int[] contactIds = new int[messages.size()];
+        int total = 0;
+
+        for (int i = 0; i < messages.size(); i++) {
+            Message msg = messages.get(i);
+            contactIds[i] = internName(msg.getContactName());
+            byte[] content = utf8(msg.getContent());
+            byte[] response = utf8(msg.getRecommendedResponse());
+            encoded.add(content);
+            encoded.add(response);
+            total += FIXED_RECORD_SIZE + content.length + response.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(total);
+        for (int i = 0; i < messages.size(); i++) {
+            Message msg = messages.get(i);
+            byte[] content = encoded.get(i * 2);
+            byte[] response = encoded.get(i * 2 + 1);
+            int bodyLength = FIXED_RECORD_SIZE - 8 + content.length + response.length;
+
+            buffer.putInt(bodyLength);
+            buffer.putLong(toEpochMillis(msg.getTimestamp()));
+            buffer.put((byte) msg.getEmotion().ordinal());
+            buffer.putFloat((float) msg.getIntensity());
+            buffer.putInt(contactIds[i]);
+            buffer.putInt(content.length);
+            buffer.put(content);
+            buffer.putInt(response.length);
+            buffer.put(response);
+            buffer.putInt(bodyLength);
+        }
+        buffer.flip();
+
+        FileChannel channel = active().channel;
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        if (channel.size() >= SEGMENT_MAX_BYTES) {
+            rotate();
+        }
+    }
+
+    /**
+     * 저장된 모든 메시지를 순서대로 읽기 (메모리 매핑)
+     * @return 읽은 메시지 수
+     */
+    public int readAll(Consumer<Message> consumer) throws IOException {
+        List<Message> tail = new ArrayList<>();
+        Position position = readTail(0, tail);
+        return readBefore(position, consumer);
+    }
+
+    /**
+     * 파일 끝에서부터 최대 maxRecords개를 읽기 (앞쪽 기록은 건드리지 않음)
+     * @param out 읽은 메시지를 시간 순서대로 추가
+     * @return 읽은 첫 레코드의 위치 (이 앞은 readBefore로 나중에 읽으면 됨)
+     */
+    public synchronized Position readTail(int maxRecords, List<Message> out) throws IOException {
+        recoverActiveTail();
+
+        List<Message> reversed = new ArrayList<>();
+        Segment segment = active();
+        long position = segment.size();
+
+        for (int s = segments.size() - 1; s >= 0; s--) {
+            segment = segments.get(s);
+            long size = segment.size();
+            position = size;
+
+            if (reversed.size() >= maxRecords) {
+                break;
+            }
+
+            MappedByteBuffer buffer = map(segment.channel, size);
+            while (reversed.size() < maxRecords && position > HEADER_SIZE) {
+                int bodyLength = buffer.getInt((int) position - 4);
+                long start = position - 8 - bodyLength;
+                if (bodyLength < FIXED_RECORD_SIZE - 8 || start < HEADER_SIZE || buffer.getInt((int) start) != bodyLength) {
+                    throw new IOException("손상된 레코드: " + segment.path.getFileName() + " " + start + " 바이트 위치");
+                }
+
+                buffer.position((int) start + 4);
+                reversed.add(decode(buffer));
+                position = start;
+            }
+
+            if (reversed.size() >= maxRecords) {
+                break;
+            }
+        }
+
+        Collections.reverse(reversed);
+        out.addAll(reversed);
+
+        boolean isStart = position <= HEADER_SIZE && segments.indexOf(segment) == 0;
+        return new Position(segment.id, position, isStart);
+    }
+
+    /**
+     * end 위치 이전의 메시지를 순서대로 읽기
+     * 이미 검증된 봉인 구간을 백그라운드에서 읽는 용도라 잠금 없이 동작
+     * (그동안 쓰기 스레드는 활성 세그먼트 끝에 계속 추가할 수 있음)
+     */
+    public int readBefore(Position end, Consumer<Message> consumer) throws IOException {
+        List<Segment> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(segments);
+        }
+
+        int count = 0;
+        for (Segment segment : snapshot) {
+            long to = segment.id == end.segmentId ? end.offset : segment.size();
+            if (to > HEADER_SIZE) {
+                MappedByteBuffer buffer = map(segment.channel, to);
+                count += scanForward(buffer, HEADER_SIZE, to, consumer);
+            }
+            if (segment.id == end.segmentId) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    // 정상 레코드를 차례로 읽고 개수를 반환
+    private int scanForward(ByteBuffer buffer, long from, long to, Consumer<Message> consumer) {
+        int count = 0;
+        buffer.position((int) from);
+        buffer.limit((int) to);
+
+        while (buffer.hasRemaining()) {
+            int start = buffer.position();
+            int bodyLength = buffer.getInt();
+            consumer.accept(decode(buffer));
+            buffer.position(start + 4 + bodyLength + 4);
+            count++;
+        }
+        return count;
+    }
+
+    // 정상 레코드가 끝나는 위치 (마지막 레코드가 끊겼으면 그 시작 위치)
+    private static long findValidEnd(ByteBuffer buffer, long size) {
+        int position = HEADER_SIZE;
+        while (position < size) {
+            if (size - position < FIXED_RECORD_SIZE) {
+                return position;
+            }
+            int bodyLength = buffer.getInt(position);
+            if (bodyLength < FIXED_RECORD_SIZE - 8 || position + 8L + bodyLength > size
+                || buffer.getInt(position + 4 + bodyLength) != bodyLength) {
+                return position;
+            }
+            position += 8 + bodyLength;
+        }
+        return position;
+    }
+
+    /**
+     * 비정상 종료로 활성 세그먼트 끝의 레코드가 끊긴 경우 정상 부분까지 잘라냄
+     * (봉인된 세그먼트는 fsync 후 봉인하므로 검사하지 않음)
+     */
+    private void recoverActiveTail() throws IOException {
+        Segment segment = active();
+        long size = segment.size();
+        if (size <= HEADER_SIZE) {
+            return;
+        }
+
+        MappedByteBuffer buffer = map(segment.channel, size);
+        int bodyLength = size - HEADER_SIZE >= FIXED_RECORD_SIZE ? buffer.getInt((int) size - 4) : -1;
+        long start = size - 8 - bodyLength;
+        if (bodyLength >= FIXED_RECORD_SIZE - 8 && start >= HEADER_SIZE && buffer.getInt((int) start) == bodyLength) {
+            return;
+        }
+
+        long validEnd = findValidEnd(buffer, size);
+        System.err.println("⚠️ 손상된 레코드 발견, " + segment.path.getFileName() + " " + validEnd + " 바이트 위치에서 잘라냅니다.");
+        segment.channel.truncate(validEnd);
+        segment.channel.position(validEnd);
+    }
+
+    private Message decode(ByteBuffer buffer) {
+        long epochMillis = buffer.getLong();
+        int emotionOrdinal = buffer.get();
+        float intensity = buffer.getFloat();
+        int contactId = buffer.getInt();
+        String content = readString(buffer);
+        String response = readString(buffer);
+
+        Emotion emotion = emotionOrdinal >= 0 && emotionOrdinal < EMOTIONS.length
+            ? EMOTIONS[emotionOrdinal] : Emotion.NEUTRAL;
+        String contactName = contactId >= 0 && contactId < names.size() ? names.get(contactId) : null;
+
+        // float → double 변환 오차 제거 (텍스트 형식과 같은 소수점 3자리)
+        Message msg = new Message(content, emotion, Math.round(intensity * 1000) / 1000.0, response, contactName);
+        msg.setTimestamp(fromEpochMillis(epochMillis));
+        return msg;
+    }
+
+    /**
+     * 전체 삭제: 새 활성 세그먼트 하나만 있는 manifest로 교체하고 기존 세그먼트 파일 삭제
+     * (파일을 다시 쓰지 않음)
+     */
+    public synchronized void clear() throws IOException {
+        clearGeneration++;
+
+        List<Segment> old = new ArrayList<>(segments);
+        segments.clear();
+        segments.add(createSegment(nextSegmentId++));
+        writeManifest();
+
+        for (Segment segment : old) {
+            segment.channel.close();
+            Files.deleteIfExists(segment.path);
+        }
+
+        dictChannel.truncate(0);
+        names.clear();
+        nameIds.clear();
+    }
+
+    public synchronized void force() throws IOException {
+        dictChannel.force(false);
+        active().channel.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        dictChannel.close();
+        for (Segment segment : segments) {
+            segment.channel.close();
+        }
+    }
+
+    // ========== 세그먼트 관리 ==========
+
+    private Segment active() {
+        return segments.get(segments.size() - 1);
+    }
+
+    private Path segmentPath(int id) {
+        return segmentDir.resolve(String.format("segment-%06d.bin", id));
+    }
+
+    private void openSegments() throws IOException {
+        Path manifest = segmentDir.resolve(MANIFEST_FILE);
+        List<Integer> ids = new ArrayList<>();
+
+        if (Files.exists(manifest)) {
+            for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+                line = line.trim();
+                if (line.startsWith("segment-")) {
+                    ids.add(Integer.parseInt(line.substring(8, line.indexOf('.'))));
+                }
+            }
+        }
+
+        nextSegmentId = ids.stream().mapToInt(Integer::intValue).max().orElse(0) + 1;
+
+        for (int i = 0; i < ids.size(); i++) {
+            int id = ids.get(i);
+            boolean isActive = i == ids.size() - 1;
+            FileChannel channel = isActive
+                ? FileChannel.open(segmentPath(id), StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(segmentPath(id), StandardOpenOption.READ);
+            checkHeader(channel, segmentPath(id));
+            channel.position(channel.size());
+            segments.add(new Segment(id, segmentPath(id), channel));
+        }
+
+        if (segments.isEmpty()) {
+            segments.add(createSegment(nextSegmentId++));
+        }
+        writeManifest();
+        deleteOrphanSegments();
+    }
+
+    private Segment createSegment(int id) throws IOException {
+        Path path = segmentPath(id);
+        FileChannel channel = FileChannel.open(path,
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        return new Segment(id, path, channel);
+    }
+
+    private static void checkHeader(FileChannel channel, Path path) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.read(header, 0);
+        header.flip();
+        if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+            channel.close();
+            throw new IOException("메시지 저장소 형식이 올바르지 않습니다: " + path);
+        }
+    }
+
+    // MANIFEST를 임시 파일에 쓰고 원자적으로 교체
+    private void writeManifest() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (Segment segment : segments) {
+            sb.append(segment.path.getFileName()).append('\n');
+        }
+
+        Path tmp = segmentDir.resolve(MANIFEST_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp,
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, segmentDir.resolve(MANIFEST_FILE),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // 압축/교체 도중 종료되어 manifest에 없는 세그먼트 파일 정리
+    private void deleteOrphanSegments() throws IOException {
+        Set<Path> live = new HashSet<>();
+        for (Segment segment : segments) {
+            live.add(segment.path.getFileName());
+        }
+
+        try (Stream<Path> files = Files.list(segmentDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.startsWith("segment-") && !live.contains(file.getFileName())) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    // 활성 세그먼트 봉인 후 새 활성 세그먼트 시작
+    private void rotate() throws IOException {
+        Segment sealed = active();
+        sealed.channel.force(true);
+        dictChannel.force(false);
+
+        segments.add(createSegment(nextSegmentId++));
+        writeManifest();
+        System.out.println("📦 세그먼트 봉인: " + sealed.path.getFileName() + " (" + sealed.size() / 1024 + "KB)");
+
+        compactAsync();
+    }
+
+    // ========== 백그라운드 압축 ==========
+
+    /**
+     * 압축 허용 후 한 번 실행
+     * (시작 직후 백그라운드 로딩이 세그먼트를 읽는 동안에는 압축하지 않도록 DataManager가 로드 후 호출)
+     */
+    public synchronized void enableCompaction() {
+        compactionEnabled = true;
+        compactAsync();
+    }
+
+    private synchronized void compactAsync() {
+        if (!compactionEnabled || compacting || segments.size() < 2) {
+            return;
+        }
+        compacting = true;
+
+        compactor = new Thread(() -> {
+            try {
+                compact();
+            } catch (Exception e) {
+                System.err.println("❌ 세그먼트 압축 실패: " + e.getMessage());
+                e.printStackTrace();
+            } finally {
+                synchronized (this) {
+                    compacting = false;
+                }
+            }
+        }, "segment-compactor");
+        compactor.setDaemon(true);
+        compactor.start();
+    }
+
+    /**
+     * 봉인된 세그먼트 압축
+     * 1. 절반도 안 찬 봉인 세그먼트가 2개 이상 연속된 구간을 찾음
+     * 2. 구간의 레코드를 새 세그먼트로 그대로 복사 (디코딩 없음, 순서 유지)
+     * 3. 잠금 안에서 manifest의 해당 구간을 새 세그먼트로 교체하고 이전 파일 삭제
+     * (삭제 / 수정 기록이 없으므로 레코드를 버리는 일은 없음)
+     */
+    private void compact() throws IOException {
+        List<Segment> snapshot;
+        long generation;
+        synchronized (this) {
+            snapshot = new ArrayList<>(segments);
+            generation = clearGeneration;
+        }
+        List<Segment> sealed = snapshot.subList(0, snapshot.size() - 1);
+
+        // 1. 작은 세그먼트가 연속된 구간
+        List<List<Segment>> runs = new ArrayList<>();
+        List<Segment> run = new ArrayList<>();
+        for (Segment segment : sealed) {
+            if (segment.size() < SEGMENT_MAX_BYTES / 2) {
+                run.add(segment);
+                continue;
+            }
+            if (run.size() >= 2) {
+                runs.add(run);
+            }
+            run = new ArrayList<>();
+        }
+        if (run.size() >= 2) {
+            runs.add(run);
+        }
+        if (runs.isEmpty()) {
+            return;
+        }
+
+        // 2. 구간별로 새 세그먼트 작성
+        Map<List<Segment>, List<Segment>> replacements = new LinkedHashMap<>();
+        for (List<Segment> merge : runs) {
+            List<Segment> output = new ArrayList<>();
+            for (Segment segment : merge) {
+                long size = segment.size();
+                forEachRecord(map(segment.channel, size), size, (buffer, start) -> {
+                    int length = 8 + buffer.getInt(start);
+                    if (output.isEmpty() || output.get(output.size() - 1).size() + length > SEGMENT_MAX_BYTES) {
+                        output.add(createSegment(allocateSegmentId()));
+                    }
+                    ByteBuffer record = buffer.duplicate();
+                    record.limit(start + length).position(start);
+                    FileChannel channel = output.get(output.size() - 1).channel;
+                    while (record.hasRemaining()) {
+                        channel.write(record);
+                    }
+                });
+            }
+
+            for (Segment segment : output) {
+                segment.channel.force(true);
+            }
+            replacements.put(merge, output);
+        }
+
+        // 3. manifest 교체
+        List<Segment> obsolete = new ArrayList<>();
+        synchronized (this) {
+            if (generation != clearGeneration) {
+                // 그동안 전체 삭제됨 → 결과 버림
+                for (List<Segment> output : replacements.values()) {
+                    for (Segment segment : output) {
+                        segment.channel.close();
+                        Files.deleteIfExists(segment.path);
+                    }
+                }
+                return;
+            }
+
+            for (Map.Entry<List<Segment>, List<Segment>> replacement : replacements.entrySet()) {
+                int at = segments.indexOf(replacement.getKey().get(0));
+                segments.removeAll(replacement.getKey());
+                segments.addAll(at, replacement.getValue());
+                obsolete.addAll(replacement.getKey());
+            }
+            writeManifest();
+
+            // 새 세그먼트는 봉인 상태이므로 쓰기 채널 대신 읽기 전용으로 다시 열기
+            for (int s = 0; s < segments.size() - 1; s++) {
+                Segment segment = segments.get(s);
+                if (replacements.values().stream().anyMatch(output -> output.contains(segment))) {
+                    segment.channel.close();
+                    segments.set(s, new Segment(segment.id, segment.path,
+                        FileChannel.open(segment.path, StandardOpenOption.READ)));
+                }
+            }
+        }
+
+        for (Segment segment : obsolete) {
+            segment.channel.close();
+            Files.deleteIfExists(segment.path);
+        }
+
+        System.out.println("🗜️ 세그먼트 압축 완료: " + obsolete.size() + "개 → "
+            + replacements.values().stream().mapToInt(List::size).sum() + "개");
+    }
+
+    private synchronized int allocateSegmentId() {
+        return nextSegmentId++;
+    }
+
+    private interface RecordVisitor {
+        void visit(ByteBuffer buffer, int start) throws IOException;
+    }
+
+    private static void forEachRecord(ByteBuffer buffer, long size, RecordVisitor visitor) throws IOException {
+        int position = HEADER_SIZE;
+        while (position < size) {
+            int bodyLength = buffer.getInt(position);
+            visitor.visit(buffer, position);
+            position += 8 + bodyLength;
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+
+    // ========== 상대 이름 사전 ==========
+
+    private void loadDictionary() throws IOException {
+        dictChannel = FileChannel.open(dictPath,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long size = dictChannel.size();
+        List<String> loaded = new ArrayList<>();
+        if (size > 0) {
+            ByteBuffer buffer = dictChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            while (buffer.remaining() >= 2) {
+                int length = buffer.getShort() & 0xFFFF;
+                if (length > buffer.remaining()) {
+                    dictChannel.truncate(buffer.position() - 2);
+                    break;
+                }
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                String name = new String(bytes, StandardCharsets.UTF_8);
+                nameIds.put(name, loaded.size());
+                loaded.add(name);
+            }
+        }
+        names.addAll(loaded);
+
+        dictChannel.position(dictChannel.size());
+    }
+
+    private int internName(String name) throws IOException {
+        Integer id = nameIds.get(name);
+        if (id != null) {
+            return id;
+        }
+
+        byte[] bytes = utf8(name);
+        if (bytes.length > 0xFFFF) {
+            throw new IOException("상대 이름이 너무 깁니다: " + bytes.length + " 바이트");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(2 + bytes.length);
+        buffer.putShort((short) bytes.length).put(bytes).flip();
+        while (buffer.hasRemaining()) {
+            dictChannel.write(buffer);
+        }
+
+        id = names.size();
+        names.add(name);
+        nameIds.put(name, id);
+        return id;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] utf8(String str) {
+        return str != null ? str.getBytes(StandardCharsets.UTF_8) : new byte[0];
+    }
+
+    static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    static LocalDateTime fromEpochMillis(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+    }
+}
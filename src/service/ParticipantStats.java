@@ -0,0 +1,223 @@
+package service;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 대화 참여자별 통계 (파싱하면서 한 번에 집계)
+ * 이름은 처음 나올 때 번호를 붙이고, 이후에는 번호로 된 기본형 배열만 갱신
+ * - 메시지 수, 첫/마지막 메시지 시각, 평균 메시지 길이, 시간대(0~23시)별 메시지 수
+ *
+ * 병렬 파싱에서는 조각마다 따로 세고 merge로 합침 (한 인스턴스는 한 스레드에서만 사용)
+ */
+public class ParticipantStats {
+    private static final int HOURS = 24;
+
+    // 한 참여자의 통계 (조회용 복사본)
+    public static class Participant {
+        private final String name;
+        private final int messageCount;
+        private final LocalDateTime firstTimestamp;
+        private final LocalDateTime lastTimestamp;
+        private final double averageLength;
+        private final int[] hourCounts;
+
+        Participant(String name, int messageCount, LocalDateTime firstTimestamp, LocalDateTime lastTimestamp,
+                    double averageLength, int[] hourCounts) {
+            this.name = name;
+            this.messageCount = messageCount;
+            this.firstTimestamp = firstTimestamp;
+            this.lastTimestamp = lastTimestamp;
+            this.averageLength = averageLength;
+            this.hourCounts = hourCounts;
+        }
+
+        public String getName() { return name; }
+        public int getMessageCount() { return messageCount; }
+        public LocalDateTime getFirstTimestamp() { return firstTimestamp; } // 메시지가 없으면 null
+        public LocalDateTime getLastTimestamp() { return lastTimestamp; }
+        public double getAverageLength() { return averageLength; }
+        public int[] getHourCounts() { return hourCounts.clone(); }
+
+        // 가장 많이 말한 시간대 (메시지가 없으면 -1)
+        public int getPeakHour() {
+            int peak = -1;
+            for (int h = 0; h < HOURS; h++) {
+                if (hourCounts[h] > 0 && (peak < 0 || hourCounts[h] > hourCounts[peak])) {
+                    peak = h;
+                }
+            }
+            return peak;
+        }
+    }
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private String[] names = new String[4];
+    private int[] counts = new int[4];
+    private long[] firstMillis = new long[4];
+    private long[] lastMillis = new long[4];
+    private long[] totalLengths = new long[4];
+    private int[] hourCounts = new int[4 * HOURS];
+    private int size = 0;
+
+    // 이름 → 번호 (처음 보는 이름이면 메시지 0개로 등록)
+    public int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+
+        if (size == names.length) {
+            int capacity = size * 2;
+            names = Arrays.copyOf(names, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            firstMillis = Arrays.copyOf(firstMillis, capacity);
+            lastMillis = Arrays.copyOf(lastMillis, capacity);
+            totalLengths = Arrays.copyOf(totalLengths, capacity);
+            hourCounts = Arrays.copyOf(hourCounts, capacity * HOURS);
+        }
+        names[size] = name;
+        firstMillis[size] = Long.MAX_VALUE;
+        lastMillis[size] = Long.MIN_VALUE;
+        ids.put(name, size);
+        return size++;
+    }
+
+    public void add(KakaoParser.KakaoMessage msg) {
+        int id = intern(msg.getUser());
+        LocalDateTime dateTime = msg.getDateTime();
+        long millis = MessageStore.toEpochMillis(dateTime);
+
+        counts[id]++;
+        totalLengths[id] += msg.getMessage().length();
+        hourCounts[id * HOURS + dateTime.getHour()]++;
+        if (millis < firstMillis[id]) {
+            firstMillis[id] = millis;
+        }
+        if (millis > lastMillis[id]) {
+            lastMillis[id] = millis;
+        }
+    }
+
+    // 다른 조각의 통계를 이름 기준으로 더함
+    public void merge(ParticipantStats other) {
+        for (int o = 0; o < other.size; o++) {
+            int id = intern(other.names[o]);
+            counts[id] += other.counts[o];
+            totalLengths[id] += other.totalLengths[o];
+            firstMillis[id] = Math.min(firstMillis[id], other.firstMillis[o]);
+            lastMillis[id] = Math.max(lastMillis[id], other.lastMillis[o]);
+            for (int h = 0; h < HOURS; h++) {
+                hourCounts[id * HOURS + h] += other.hourCounts[o * HOURS + h];
+            }
+        }
+    }
+
+    public ParticipantStats copy() {
+        ParticipantStats copy = new ParticipantStats();
+        copy.merge(this);
+        return copy;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(String name) {
+        return ids.containsKey(name);
+    }
+
+    public int getMessageCount(String name) {
+        Integer id = ids.get(name);
+        return id == null ? 0 : counts[id];
+    }
+
+    // 등록된 순서의 이름
+    public List<String> getNames() {
+        return Arrays.asList(Arrays.copyOf(names, size));
+    }
+
+    // 메시지 수 상위 n명 (정렬 없이 n번 훑어서)
+    public List<String> top(int n) {
+        List<String> result = new ArrayList<>();
+        boolean[] taken = new boolean[size];
+        for (int k = 0; k < Math.min(n, size); k++) {
+            int best = -1;
+            for (int id = 0; id < size; id++) {
+                if (!taken[id] && (best < 0 || counts[id] > counts[best])) {
+                    best = id;
+                }
+            }
+            taken[best] = true;
+            result.add(names[best]);
+        }
+        return result;
+    }
+
+    public Map<String, Integer> toCountMap() {
+        Map<String, Integer> map = new HashMap<>();
+        for (int id = 0; id < size; id++) {
+            map.put(names[id], counts[id]);
+        }
+        return map;
+    }
+
+    public Participant get(String name) {
+        Integer id = ids.get(name);
+        return id == null ? null : participant(id);
+    }
+
+    // 메시지 수 많은 순서
+    public List<Participant> getParticipants() {
+        List<Participant> result = new ArrayList<>(size);
+        for (int id = 0; id < size; id++) {
+            result.add(participant(id));
+        }
+        result.sort((a, b) -> Integer.compare(b.getMessageCount(), a.getMessageCount()));
+        return result;
+    }
+
+    private Participant participant(int id) {
+        boolean empty = counts[id] == 0;
+        return new Participant(names[id], counts[id],
+            empty ? null : MessageStore.fromEpochMillis(firstMillis[id]),
+            empty ? null : MessageStore.fromEpochMillis(lastMillis[id]),
+            empty ? 0 : (double) totalLengths[id] / counts[id],
+            Arrays.copyOfRange(hourCounts, id * HOURS, (id + 1) * HOURS));
+    }
+
+    // ========== 체크포인트 저장 ==========
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        for (int id = 0; id < size; id++) {
+            out.writeUTF(names[id]);
+            out.writeInt(counts[id]);
+            out.writeLong(firstMillis[id]);
+            out.writeLong(lastMillis[id]);
+            out.writeLong(totalLengths[id]);
+            for (int h = 0; h < HOURS; h++) {
+                out.writeInt(hourCounts[id * HOURS + h]);
+            }
+        }
+    }
+
+    static ParticipantStats read(DataInputStream in) throws IOException {
+        ParticipantStats stats = new ParticipantStats();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            int id = stats.intern(in.readUTF());
+            stats.counts[id] = in.readInt();
+            stats.firstMillis[id] = in.readLong();
+            stats.lastMillis[id] = in.readLong();
+            stats.totalLengths[id] = in.readLong();
+            for (int h = 0; h < HOURS; h++) {
+                stats.hourCounts[id * HOURS + h] = in.readInt();
+            }
+        }
+        return stats;
+    }
+}
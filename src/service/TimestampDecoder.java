@@ -0,0 +1,115 @@
+package service;
+
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+
+/**
+ * 카카오톡 내보내기 날짜 디코더 (DateTimeFormatter / 예외 없이 문자 위치로 직접 숫자 파싱)
+ * 지원 형식:
+ * - 2025-04-04 17:48:56
+ * - 2025-04-04 오후 5:48:56  (오전/오후 또는 AM/PM, 시는 1~2자리)
+ *
+ * 한 파일은 보통 한 형식만 쓰므로 마지막으로 맞은 형식을 먼저 시도 (파일마다 인스턴스 하나)
+ */
+public class TimestampDecoder {
+
+    private enum Layout { TWENTY_FOUR_HOUR, AM_PM }
+
+    private Layout layout = Layout.TWENTY_FOUR_HOUR;
+
+    /**
+     * @return 알 수 없는 형식이거나 값이 범위를 벗어나면 null
+     */
+    public LocalDateTime decode(String s) {
+        LocalDateTime result = decode(s, layout);
+        if (result == null) {
+            Layout other = layout == Layout.TWENTY_FOUR_HOUR ? Layout.AM_PM : Layout.TWENTY_FOUR_HOUR;
+            result = decode(s, other);
+            if (result != null) {
+                layout = other; // 🆕 이 파일의 형식으로 기억
+            }
+        }
+        return result;
+    }
+
+    private static LocalDateTime decode(String s, Layout layout) {
+        // 공통: yyyy-MM-dd + 공백
+        if (s.length() < 19 || s.charAt(4) != '-' || s.charAt(7) != '-' || s.charAt(10) != ' ') {
+            return null;
+        }
+        int year = digits(s, 0, 4);
+        int month = digits(s, 5, 2);
+        int day = digits(s, 8, 2);
+
+        int hour;
+        int timeStart;
+        if (layout == Layout.TWENTY_FOUR_HOUR) {
+            if (s.length() != 19 || s.charAt(13) != ':') {
+                return null;
+            }
+            hour = digits(s, 11, 2);
+            timeStart = 14;
+        } else {
+            // "오전 " / "오후 " / "AM " / "PM "
+            int pm = meridiem(s);
+            if (pm < 0) {
+                return null;
+            }
+            int hourStart = 14; // 오전/오후/AM/PM 모두 두 글자
+            int colon = s.indexOf(':', hourStart);
+            int hourLength = colon - hourStart;
+            if (hourLength < 1 || hourLength > 2 || s.length() != colon + 6) {
+                return null;
+            }
+            hour = digits(s, hourStart, hourLength);
+            if (hour < 1 || hour > 12) {
+                return null;
+            }
+            hour = hour % 12 + (pm == 1 ? 12 : 0);
+            timeStart = colon + 1;
+        }
+
+        if (s.charAt(timeStart + 2) != ':') {
+            return null;
+        }
+        int minute = digits(s, timeStart, 2);
+        int second = digits(s, timeStart + 3, 2);
+
+        if (year < 0 || month < 1 || month > 12 || day < 1 || hour < 0 || hour > 23
+            || minute < 0 || minute > 59 || second < 0 || second > 59
+            || day > Month.of(month).length(Year.isLeap(year))) {
+            return null;
+        }
+        return LocalDateTime.of(year, month, day, hour, minute, second);
+    }
+
+    // 0 = 오전/AM, 1 = 오후/PM, -1 = 형식 아님
+    private static int meridiem(String s) {
+        if (s.charAt(13) != ' ') {
+            return -1;
+        }
+        char first = s.charAt(11);
+        char second = s.charAt(12);
+        if (first == '오' && second == '전' || first == 'A' && second == 'M') {
+            return 0;
+        }
+        if (first == '오' && second == '후' || first == 'P' && second == 'M') {
+            return 1;
+        }
+        return -1;
+    }
+
+    // 숫자가 아닌 문자가 있으면 -1
+    private static int digits(String s, int start, int length) {
+        int value = 0;
+        for (int i = start; i < start + length; i++) {
+            int d = s.charAt(i) - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            value = value * 10 + d;
+        }
+        return value;
+    }
+}
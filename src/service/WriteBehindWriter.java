@@ -0,0 +1,230 @@
+package service;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 지연 쓰기(write-behind) 저장 엔진
+ * - 호출 스레드(주로 JavaFX 스레드)는 큐에 넣기만 하고 바로 반환
+ * - 전용 쓰기 스레드가 몇 ms 안에 들어온 변경을 모아서 대상별로 한 번에 쓰고 한 번 fsync (group commit)
+ * - 큐가 가득 차면 submit이 잠시 대기 (메모리 무한 증가 방지)
+ *
+ * 내구성 모드는 시스템 속성 emotion.durability 로 설정 (async / group / sync, 기본 group)
+ */
+public class WriteBehindWriter {
+
+    public enum DurabilityMode {
+        ASYNC,        // 모아서 쓰기만 하고 fsync는 OS에 맡김
+        GROUP_COMMIT, // 모아서 쓰고 배치마다 fsync
+        SYNC          // GROUP_COMMIT + submit이 fsync 완료까지 대기
+    }
+
+    // 쓰기 대상 (DataManager, ContactManager 등)
+    public interface BatchSink<T> {
+        void write(List<T> batch, boolean sync) throws IOException;
+    }
+
+    private static final int QUEUE_CAPACITY = 4096;
+    private static final long GROUP_COMMIT_WINDOW_MS = 5;
+    private static final int MAX_BATCH_SIZE = 1024;
+
+    private static WriteBehindWriter instance;
+    private static final Object STOP = new Object();
+
+    private static class Entry {
+        final BatchSink<Object> sink;
+        final Object record;
+        final CountDownLatch done; // flush/SYNC 대기용 (없으면 null)
+
+        Entry(BatchSink<Object> sink, Object record, CountDownLatch done) {
+            this.sink = sink;
+            this.record = record;
+            this.done = done;
+        }
+    }
+
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread writerThread;
+    private volatile DurabilityMode mode;
+    private volatile boolean running = true;
+
+    public static synchronized WriteBehindWriter getInstance() {
+        if (instance == null) {
+            instance = new WriteBehindWriter(modeFromProperty());
+        }
+        return instance;
+    }
+
+    private WriteBehindWriter(DurabilityMode mode) {
+        this.mode = mode;
+        this.writerThread = new Thread(this::runLoop, "write-behind-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+
+        // 종료 시 남은 변경 저장
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "write-behind-shutdown"));
+
+        System.out.println("✍️ 지연 쓰기 엔진 시작 (내구성: " + mode + ")");
+    }
+
+    private static DurabilityMode modeFromProperty() {
+        String value = System.getProperty("emotion.durability", "group").trim().toLowerCase();
+        switch (value) {
+            case "async": return DurabilityMode.ASYNC;
+            case "sync": return DurabilityMode.SYNC;
+            default: return DurabilityMode.GROUP_COMMIT;
+        }
+    }
+
+    public DurabilityMode getMode() { return mode; }
+    public void setMode(DurabilityMode mode) { this.mode = mode; }
+
+    /**
+     * 변경 1건을 큐에 넣기 (SYNC 모드에서는 디스크 반영까지 대기)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void submit(BatchSink<T> sink, T record) {
+        CountDownLatch done = mode == DurabilityMode.SYNC ? new CountDownLatch(1) : null;
+
+        synchronized (this) {
+            if (!running) {
+                // 종료 이후 들어온 변경은 호출 스레드에서 직접 저장
+                writeDirect((BatchSink<Object>) sink, record);
+                return;
+            }
+            enqueue(new Entry((BatchSink<Object>) sink, record, done));
+        }
+        await(done);
+    }
+
+    /**
+     * 지금까지 넣은 변경이 모두 저장될 때까지 대기
+     */
+    public void flush() {
+        if (Thread.currentThread() == writerThread) {
+            return;
+        }
+
+        CountDownLatch done = new CountDownLatch(1);
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            enqueue(new Entry(null, null, done));
+        }
+        await(done);
+    }
+
+    /**
+     * 남은 변경을 모두 저장하고 쓰기 스레드 종료
+     * (쓰기 중 interrupt하면 FileChannel이 닫히므로 종료 표시를 큐에 넣는 방식)
+     */
+    public void shutdown() {
+        CountDownLatch done = new CountDownLatch(1);
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            enqueue(new Entry(null, STOP, done));
+        }
+        await(done);
+        System.out.println("✍️ 지연 쓰기 엔진 종료 (남은 변경 저장 완료)");
+    }
+
+    private void enqueue(Entry entry) {
+        try {
+            queue.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void await(CountDownLatch done) {
+        if (done == null) {
+            return;
+        }
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runLoop() {
+        List<Entry> batch = new ArrayList<>();
+        boolean stopped = false;
+
+        while (!stopped) {
+            try {
+                batch.add(queue.take());
+
+                // group commit: 잠깐 기다리며 뒤이어 들어오는 변경을 함께 처리
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(GROUP_COMMIT_WINDOW_MS);
+                while (batch.size() < MAX_BATCH_SIZE) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    Entry next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, MAX_BATCH_SIZE - batch.size());
+                }
+
+                for (Entry entry : batch) {
+                    if (entry.record == STOP) {
+                        stopped = true;
+                    }
+                }
+                commit(batch);
+                batch.clear();
+
+            } catch (InterruptedException e) {
+                commit(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<Entry> batch) {
+        // 대상별로 순서를 유지하며 묶기
+        Map<BatchSink<Object>, List<Object>> bySink = new LinkedHashMap<>();
+        for (Entry entry : batch) {
+            if (entry.sink != null) {
+                bySink.computeIfAbsent(entry.sink, k -> new ArrayList<>()).add(entry.record);
+            }
+        }
+
+        boolean sync = mode != DurabilityMode.ASYNC;
+        for (Map.Entry<BatchSink<Object>, List<Object>> group : bySink.entrySet()) {
+            try {
+                group.getKey().write(group.getValue(), sync);
+            } catch (Exception e) {
+                System.err.println("❌ 지연 쓰기 실패: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+
+        for (Entry entry : batch) {
+            if (entry.done != null) {
+                entry.done.countDown();
+            }
+        }
+    }
+
+    private void writeDirect(BatchSink<Object> sink, Object record) {
+        try {
+            sink.write(Collections.singletonList(record), mode != DurabilityMode.ASYNC);
+        } catch (Exception e) {
+            System.err.println("❌ 저장 실패: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}